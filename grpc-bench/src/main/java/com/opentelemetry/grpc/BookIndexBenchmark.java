@@ -0,0 +1,94 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.proto.Book;
+import com.opentelemetry.proto.BookSearch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Title lookups as done by {@code BookStoreImpl.first}, against synthetic catalogs of increasing
+ * size. {@code linearScan} replays the original stream-and-filter implementation as a baseline.
+ * {@code storage} runs the index over a heap buffer or over a memory-mapped catalog file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookIndexBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({"1000", "100000", "1000000"})
+    int catalogSize;
+
+    @Param({"heap", "mapped"})
+    String storage;
+
+    private Map<String, Book> bookMap;
+    private BookIndex index;
+    private BookSearch[] titleSearches;
+    private BookSearch[] authorSearches;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        bookMap = Catalogs.synthetic(catalogSize);
+        if ("mapped".equals(storage)) {
+            Path catalog = Files.createTempFile("books", ".catalog");
+            catalog.toFile().deleteOnExit();
+            BookCatalogBuilder.write(List.copyOf(bookMap.values()), catalog);
+            index = BookIndex.open(catalog);
+        } else {
+            index = BookIndex.of(bookMap.values());
+        }
+        Book[] books = bookMap.values().toArray(new Book[0]);
+        Random random = new Random(42);
+        titleSearches = new BookSearch[QUERIES];
+        authorSearches = new BookSearch[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            Book book = books[random.nextInt(books.length)];
+            // Query by a prefix of a real title, like the sample clients do
+            String title = book.getName();
+            titleSearches[i] = BookSearch.newBuilder().setName(title.substring(0, Math.min(title.length(), 12))).build();
+            authorSearches[i] = BookSearch.newBuilder().setAuthor(book.getAuthor()).setGenre(book.getGenre()).build();
+        }
+    }
+
+    @Benchmark
+    public Book indexByTitle() {
+        return index.first(titleSearches[next++ & (QUERIES - 1)]);
+    }
+
+    @Benchmark
+    public Book indexByAuthorAndGenre() {
+        return index.first(authorSearches[next++ & (QUERIES - 1)]);
+    }
+
+    @Benchmark
+    public Book linearScan() {
+        BookSearch searchQuery = titleSearches[next++ & (QUERIES - 1)];
+        List<String> matchingBookTitles = bookMap.keySet().stream().filter(title ->
+                title.startsWith(searchQuery.getName().trim())).collect(Collectors.toList());
+        return matchingBookTitles.isEmpty() ? null : bookMap.get(matchingBookTitles.get(0));
+    }
+}
@@ -0,0 +1,104 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.proto.Book;
+import com.opentelemetry.proto.BookSearch;
+import io.opentelemetry.api.OpenTelemetry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lookups hammering a {@link LiveBookCatalog} while another thread keeps rewriting the catalog file
+ * and reloading it.
+ *
+ * Every book of a catalog version carries that version as its genre. Each lookup resolves two
+ * titles against one snapshot and fails the run if they come from different versions. A reload
+ * that fails, for example because it mapped a half-written file, also fails the run. So besides
+ * measuring lookup cost under reloads, the benchmark checks that every snapshot is consistent.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogReloadBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({"10000"})
+    int catalogSize;
+
+    private final List<List<Book>> versions = new ArrayList<>();
+    private Path file;
+    private LiveBookCatalog catalog;
+    private BookSearch[] searches;
+    private int version;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Every reload logs at INFO
+        Logger.getLogger("").setLevel(Level.WARNING);
+        List<Book> books = List.copyOf(Catalogs.synthetic(catalogSize).values());
+        for (int v = 0; v < 2; v++) {
+            List<Book> copy = new ArrayList<>(books.size());
+            for (Book book : books) {
+                copy.add(book.toBuilder().setGenre("version " + v).build());
+            }
+            versions.add(copy);
+        }
+        searches = new BookSearch[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            searches[i] = BookSearch.newBuilder().setName(books.get(i % books.size()).getName()).build();
+        }
+        file = Files.createTempFile("books", ".catalog");
+        file.toFile().deleteOnExit();
+        BookCatalogBuilder.write(versions.get(0), file);
+        catalog = new LiveBookCatalog(file, BookIndex.open(file), OpenTelemetry.noop());
+    }
+
+    @Benchmark
+    @Group("reload")
+    @GroupThreads(3)
+    public Book lookup() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        BookIndex snapshot = catalog.get();
+        Book first = snapshot.first(searches[random.nextInt(QUERIES)]);
+        Book second = snapshot.first(searches[random.nextInt(QUERIES)]);
+        if (!first.getGenre().equals(second.getGenre())) {
+            throw new IllegalStateException("Snapshot mixes " + first.getGenre() + " and " + second.getGenre());
+        }
+        return second;
+    }
+
+    @Benchmark
+    @Group("reload")
+    @GroupThreads(1)
+    public boolean reload() throws IOException {
+        version ^= 1;
+        BookCatalogBuilder.write(versions.get(version), file);
+        if (!catalog.reload()) {
+            throw new IllegalStateException("Reload of version " + version + " failed");
+        }
+        return true;
+    }
+}
@@ -0,0 +1,35 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.proto.Book;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/** Deterministic synthetic catalogs for the benchmarks. */
+final class Catalogs {
+    private static final String[] WORDS = {
+            "Great", "Passage", "Paradise", "Watchman", "Mockingbird", "River", "Winter", "Garden",
+            "Shadow", "Empire", "Silent", "Golden", "Harbor", "Northern", "Last", "Second"};
+    private static final String[] GENRES = {
+            "Novel", "Tragedy", "Southern Gothic", "Historical Fiction", "Mystery", "Poetry", "Satire"};
+
+    private Catalogs() {
+    }
+
+    static Map<String, Book> synthetic(int size) {
+        Random random = new Random(size);
+        Map<String, Book> books = new HashMap<>(size * 2);
+        int authors = Math.max(1, size / 20);
+        for (int i = 0; i < size; i++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            books.put(title, Book.newBuilder()
+                    .setName(title)
+                    .setAuthor("Author " + random.nextInt(authors))
+                    .setGenre(GENRES[random.nextInt(GENRES.length)])
+                    .setPrice(100 + random.nextInt(900))
+                    .build());
+        }
+        return books;
+    }
+}
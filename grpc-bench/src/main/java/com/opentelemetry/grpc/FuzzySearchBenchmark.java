@@ -0,0 +1,77 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.proto.Book;
+import com.opentelemetry.proto.ScoredBooks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code fuzzySearch} lookups against synthetic catalogs of increasing size. Each query is a real
+ * title or author, upper-cased and with two adjacent characters swapped, so an exact lookup would
+ * miss it. The trigram index is built once per trial, outside the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FuzzySearchBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({"1000", "100000", "1000000"})
+    int catalogSize;
+
+    private FuzzyIndex index;
+    private String[] titleQueries;
+    private String[] authorQueries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, Book> bookMap = Catalogs.synthetic(catalogSize);
+        index = BookIndex.of(bookMap.values()).fuzzy();
+        Book[] books = bookMap.values().toArray(new Book[0]);
+        Random random = new Random(42);
+        titleQueries = new String[QUERIES];
+        authorQueries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            Book book = books[random.nextInt(books.length)];
+            titleQueries[i] = FuzzyIndex.normalize(typo(book.getName(), random));
+            authorQueries[i] = FuzzyIndex.normalize(typo(book.getAuthor(), random));
+        }
+    }
+
+    private static String typo(String value, Random random) {
+        char[] chars = value.toUpperCase().toCharArray();
+        int at = random.nextInt(chars.length - 1);
+        char swap = chars[at];
+        chars[at] = chars[at + 1];
+        chars[at + 1] = swap;
+        return new String(chars);
+    }
+
+    @Benchmark
+    public ScoredBooks byTitle() {
+        return index.search(titleQueries[next++ & (QUERIES - 1)], FuzzyIndex.MAX_EDITS, FuzzyIndex.DEFAULT_LIMIT);
+    }
+
+    @Benchmark
+    public ScoredBooks byAuthor() {
+        return index.search(authorQueries[next++ & (QUERIES - 1)], FuzzyIndex.MAX_EDITS, FuzzyIndex.DEFAULT_LIMIT);
+    }
+}
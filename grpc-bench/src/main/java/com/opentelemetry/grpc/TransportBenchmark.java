@@ -0,0 +1,99 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.proto.Book;
+import com.opentelemetry.proto.BookSearch;
+import com.opentelemetry.proto.BookStoreGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.opentelemetry.api.OpenTelemetry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Unary {@code first} round trips between a client and server on the same host, over loopback TCP
+ * and over a Unix domain socket. Both sides run the stock BookStore service and the channels from
+ * {@link BookStoreChannels}, so the transport is the only difference.
+ *
+ * {@code first} reports the latency distribution of one caller; {@code firstConcurrent} reports
+ * throughput with eight callers sharing the channel.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransportBenchmark {
+    @Param({"tcp", "uds"})
+    String transport;
+
+    // Unmetered, so the measurement carries no SDK
+    private static final LiveBookCatalog catalog = LiveBookCatalog.openConfigured(OpenTelemetry.noop());
+
+    private Path socketDir;
+    private Server server;
+    private ManagedChannel channel;
+    private BookStoreGrpc.BookStoreBlockingStub stub;
+    private final BookSearch search = BookSearch.newBuilder().setName("Great").build();
+
+    @Setup
+    public void setUp() throws IOException {
+        // Keep per-call INFO logging out of the measurement
+        Logger.getLogger("").setLevel(Level.WARNING);
+        ServerBuilder<?> serverBuilder;
+        if ("uds".equals(transport)) {
+            socketDir = Files.createTempDirectory("grpc-bench");
+            Path socket = socketDir.resolve("bookstore.sock");
+            serverBuilder = ServerTransports.forDomainSocket(socket);
+            server = serverBuilder.addService(new BookStoreImpl(catalog)).build().start();
+            channel = BookStoreChannels.forTarget("unix:" + socket);
+        } else {
+            serverBuilder = ServerBuilder.forPort(0);
+            server = serverBuilder.addService(new BookStoreImpl(catalog)).build().start();
+            channel = BookStoreChannels.forTarget("localhost:" + server.getPort());
+        }
+        stub = BookStoreGrpc.newBlockingStub(channel);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException, IOException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        if (socketDir != null) {
+            Files.deleteIfExists(socketDir.resolve("bookstore.sock"));
+            Files.deleteIfExists(socketDir);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Book first() {
+        return stub.first(search);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(8)
+    public Book firstConcurrent() {
+        return stub.first(search);
+    }
+}
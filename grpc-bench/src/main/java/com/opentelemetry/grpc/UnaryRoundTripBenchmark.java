@@ -0,0 +1,125 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.common.RpcPhases;
+import com.opentelemetry.proto.Book;
+import com.opentelemetry.proto.BookSearch;
+import com.opentelemetry.proto.BookStoreGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Unary {@code first} round trips over the in-process transport.
+ *
+ * <ul>
+ *   <li>{@code plain}: no interceptors, i.e. {@code BookeStoreServerUnary}, and also what runs when
+ *       {@code otel.tracing.enabled=false}
+ *   <li>{@code noop}: the interceptor pair over the no-op OpenTelemetry API
+ *   <li>{@code unsampled}: the interceptor pair over the SDK with every trace sampled out
+ *   <li>{@code sampled}: the interceptor pair over the SDK recording every call, exporting to a
+ *       no-op exporter through {@link BatchSpanProcessor}
+ *   <li>{@code phases}: {@code sampled} plus the {@link RpcPhases} stream tracers on both sides
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UnaryRoundTripBenchmark {
+    @Param({"plain", "noop", "unsampled", "sampled", "phases"})
+    String tracing;
+
+    // Unmetered, so the measurement carries no SDK
+    private static final LiveBookCatalog catalog = LiveBookCatalog.openConfigured(OpenTelemetry.noop());
+
+    private OpenTelemetry openTelemetry;
+    private Server server;
+    private ManagedChannel channel;
+    private BookStoreGrpc.BookStoreBlockingStub stub;
+    private final BookSearch search = BookSearch.newBuilder().setName("Great").build();
+
+    @Setup
+    public void setUp() throws IOException {
+        // Keep per-call INFO logging out of the measurement
+        Logger.getLogger("").setLevel(Level.WARNING);
+        String name = InProcessServerBuilder.generateName();
+        InProcessServerBuilder serverBuilder = InProcessServerBuilder.forName(name).directExecutor();
+        InProcessChannelBuilder channelBuilder = InProcessChannelBuilder.forName(name).directExecutor();
+        if ("plain".equals(tracing)) {
+            serverBuilder.addService(new BookStoreImpl(catalog));
+        } else {
+            openTelemetry = openTelemetry(tracing);
+            serverBuilder.addService(ServerInterceptors.intercept(
+                    new BookStoreImpl(catalog), new BookServerInterceptor(openTelemetry)));
+            channelBuilder.intercept(new BookClientInterceptor(openTelemetry));
+            if ("phases".equals(tracing)) {
+                // Phases are off unless asked for
+                System.setProperty("grpc.phase.tracing", "true");
+                RpcPhases.configure(serverBuilder, openTelemetry);
+                RpcPhases.configure(channelBuilder, openTelemetry);
+            }
+        }
+        server = serverBuilder.build().start();
+        channel = channelBuilder.build();
+        stub = BookStoreGrpc.newBlockingStub(channel);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        if (openTelemetry instanceof OpenTelemetrySdk) {
+            ((OpenTelemetrySdk) openTelemetry).getSdkTracerProvider().shutdown().join(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    public Book first() {
+        return stub.first(search);
+    }
+
+    static OpenTelemetry openTelemetry(String tracing) {
+        if ("noop".equals(tracing)) {
+            return OpenTelemetry.noop();
+        }
+        SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .setSampler("unsampled".equals(tracing) ? Sampler.alwaysOff() : Sampler.alwaysOn())
+                .addSpanProcessor(BatchSpanProcessor.builder(SpanExporter.composite()).build())
+                .build();
+        return OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider)
+                .setMeterProvider(SdkMeterProvider.builder().build())
+                .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+                .build();
+    }
+}
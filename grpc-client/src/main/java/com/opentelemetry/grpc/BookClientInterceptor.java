@@ -0,0 +1,50 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.common.AsyncLogger;
+import com.opentelemetry.common.MetadataPropagation;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+
+/**
+ * Propagates the current trace context in the request metadata. Client metrics are recorded on
+ * every channel by {@link RpcMetricsClientInterceptor}.
+ */
+class BookClientInterceptor implements ClientInterceptor {
+    private static final AsyncLogger logger = AsyncLogger.getLogger(BookClientInterceptor.class);
+
+    private final MetadataPropagation propagation;
+
+    BookClientInterceptor(OpenTelemetry openTelemetry) {
+        // Share context via text headers, or grpc-trace-bin in binary mode
+        this.propagation = MetadataPropagation.create(openTelemetry);
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT>
+    interceptCall(
+            MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next
+    ) {
+        return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+                    @Override
+                    public void start(Listener<RespT> responseListener, Metadata headers) {
+                        Context context = Context.current();
+                        // Unsampled contexts are still propagated so the server honours the decision
+                        if (Span.fromContext(context).isRecording()) {
+                            logger.info("Added metadata");
+                        }
+//                        headers.put(Metadata.Key.of("HOSTNAME", ASCII_STRING_MARSHALLER), "MY_HOST");
+                        // Inject context into the gRPC request metadata
+                        propagation.inject(context, headers);
+                        super.start(responseListener, headers);
+                    }
+                };
+    }
+}
@@ -0,0 +1,242 @@
+package com.opentelemetry.grpc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opentelemetry.common.MessageCompression;
+import com.opentelemetry.common.OtelSdkConfiguration;
+import com.opentelemetry.common.RpcMetrics;
+import com.opentelemetry.common.RpcPhases;
+import com.opentelemetry.proto.BookStoreGrpc;
+import com.opentelemetry.proto.GreeterGrpc;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.LoadBalancerRegistry;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.MethodDescriptor;
+import io.grpc.NameResolverRegistry;
+import io.grpc.ServiceDescriptor;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.netty.buffer.PooledByteBufAllocator;
+import io.grpc.netty.shaded.io.netty.channel.ChannelOption;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.Epoll;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.unix.DomainSocketAddress;
+import io.grpc.netty.shaded.io.netty.util.concurrent.DefaultThreadFactory;
+import io.opentelemetry.api.OpenTelemetry;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds client channels that spread calls over several connections and backends.
+ *
+ * The target may be a plain {@code host:port}, a {@code static:///host:port,host:port} list or a
+ * {@code file:///path} of backends (see {@link StaticNameResolverProvider}). A {@code unix:/path}
+ * target connects to a server on the same host over a Unix domain socket, using Netty's native
+ * epoll transport with pooled direct buffers. Three system properties shape the channel:
+ *
+ * <ul>
+ *   <li>{@code grpc.client.lb}: {@code round_robin} (the default) or {@code least_request}.
+ *   <li>{@code grpc.client.connections}: the number of independent channels in the pool, each with
+ *       its own connection to every backend. Calls rotate over them. The default is 1.
+ *   <li>{@code grpc.client.service.config}: a JSON service config file with retry or hedging
+ *       policies. Without it the BookStore and Greeter methods retry {@code UNAVAILABLE} up to
+ *       three times. {@code RESOURCE_EXHAUSTED} from a shedding server is deliberately not
+ *       retried.
+ *   <li>{@code grpc.client.deadline}: without a service config file, the deadline in milliseconds
+ *       of every unary call, 2000 by default. {@code grpc.client.deadline.<method>} overrides it for
+ *       one method, e.g. {@code grpc.client.deadline.firstBatch=500}. Streaming methods have no
+ *       deadline unless one is set this way, and {@code 0} removes it.
+ * </ul>
+ *
+ * Message compression follows {@code grpc.compression}, see {@link MessageCompression}. Every
+ * channel records {@link RpcMetrics} through {@link RpcMetricsClientInterceptor}.
+ */
+final class BookStoreChannels {
+    private static final String UNIX = "unix:";
+    // Shared by every domain socket channel, created on first use
+    private static EventLoopGroup domainSocketEventLoop;
+
+    static {
+        NameResolverRegistry.getDefaultRegistry().register(new StaticNameResolverProvider(StaticNameResolverProvider.STATIC));
+        NameResolverRegistry.getDefaultRegistry().register(new StaticNameResolverProvider(StaticNameResolverProvider.FILE));
+        LoadBalancerRegistry.getDefaultRegistry().register(new LeastRequestLoadBalancer.Provider());
+    }
+
+    private BookStoreChannels() {
+    }
+
+    static ManagedChannel forTarget(String target, ClientInterceptor... interceptors) throws IOException {
+        String policy = System.getProperty("grpc.client.lb", "round_robin");
+        int connections = Integer.getInteger("grpc.client.connections", 1);
+        String serviceConfigFile = System.getProperty("grpc.client.service.config");
+        Map<String, ?> serviceConfig = serviceConfigFile == null
+                ? defaultServiceConfig(policy) : readServiceConfig(Path.of(serviceConfigFile), policy);
+
+        OpenTelemetry openTelemetry = OtelSdkConfiguration.openTelemetry();
+        RpcMetricsClientInterceptor metrics = new RpcMetricsClientInterceptor(RpcMetrics.forClient(openTelemetry));
+        List<ManagedChannel> channels = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            ManagedChannelBuilder<?> builder = target.startsWith(UNIX)
+                    ? forDomainSocket(target.substring(UNIX.length()).replaceFirst("^//", ""))
+                    : ManagedChannelBuilder.forTarget(target);
+            MessageCompression.configure(builder, openTelemetry);
+            RpcPhases.configure(builder, openTelemetry);
+            channels.add(builder
+                    .usePlaintext()
+                    .defaultServiceConfig(serviceConfig)
+                    .enableRetry()
+                    .intercept(interceptors)
+                    .intercept(metrics)
+                    .build());
+        }
+        return channels.size() == 1 ? channels.get(0) : new ChannelPool(channels);
+    }
+
+    static NettyChannelBuilder forDomainSocket(String path) {
+        return NettyChannelBuilder.forAddress(new DomainSocketAddress(path))
+                .channelType(EpollDomainSocketChannel.class)
+                .eventLoopGroup(domainSocketEventLoop())
+                .withOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+    }
+
+    private static synchronized EventLoopGroup domainSocketEventLoop() {
+        if (domainSocketEventLoop == null) {
+            if (!Epoll.isAvailable()) {
+                throw new IllegalStateException("Unix domain sockets need the native epoll transport",
+                        Epoll.unavailabilityCause());
+            }
+            domainSocketEventLoop = new EpollEventLoopGroup(0, new DefaultThreadFactory("grpc-uds-client", true));
+        }
+        return domainSocketEventLoop;
+    }
+
+    private static Map<String, ?> defaultServiceConfig(String policy) {
+        Map<String, Object> retryPolicy = new LinkedHashMap<>();
+        retryPolicy.put("maxAttempts", 3d);
+        retryPolicy.put("initialBackoff", "0.1s");
+        retryPolicy.put("maxBackoff", "1s");
+        retryPolicy.put("backoffMultiplier", 2d);
+        retryPolicy.put("retryableStatusCodes", List.of("UNAVAILABLE"));
+        int defaultDeadline = Integer.getInteger("grpc.client.deadline", 2000);
+        // A method's own entry replaces its service's, so each one repeats the retry policy
+        List<Map<String, ?>> methodConfigs = new ArrayList<>();
+        for (ServiceDescriptor service : List.of(BookStoreGrpc.getServiceDescriptor(), GreeterGrpc.getServiceDescriptor())) {
+            methodConfigs.add(methodConfig(Map.of("service", service.getName()), retryPolicy, defaultDeadline));
+            for (MethodDescriptor<?, ?> method : service.getMethods()) {
+                String name = MethodDescriptor.extractBareMethodName(method.getFullMethodName());
+                int deadline = Integer.getInteger("grpc.client.deadline." + name,
+                        method.getType() == MethodDescriptor.MethodType.UNARY ? defaultDeadline : 0);
+                if (deadline != defaultDeadline) {
+                    methodConfigs.add(methodConfig(Map.of("service", service.getName(), "method", name),
+                            retryPolicy, deadline));
+                }
+            }
+        }
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("loadBalancingConfig", List.of(Map.of(policy, Map.of())));
+        config.put("methodConfig", methodConfigs);
+        return config;
+    }
+
+    private static Map<String, ?> methodConfig(Map<String, String> name, Map<String, ?> retryPolicy, int deadlineMillis) {
+        Map<String, Object> methodConfig = new LinkedHashMap<>();
+        methodConfig.put("name", List.of(name));
+        methodConfig.put("retryPolicy", retryPolicy);
+        if (deadlineMillis > 0) {
+            // The deadline covers every attempt of a call, retries included
+            methodConfig.put("timeout", BigDecimal.valueOf(deadlineMillis, 3).toPlainString() + "s");
+        }
+        return methodConfig;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, ?> readServiceConfig(Path file, String policy) throws IOException {
+        Map<String, Object> config = (Map<String, Object>) numbersAsDoubles(new ObjectMapper().readValue(file.toFile(), Map.class));
+        config.putIfAbsent("loadBalancingConfig", List.of(Map.of(policy, Map.of())));
+        return config;
+    }
+
+    // gRPC only accepts JSON numbers in a service config as Double
+    private static Object numbersAsDoubles(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof List) {
+            List<Object> list = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                list.add(numbersAsDoubles(element));
+            }
+            return list;
+        }
+        if (value instanceof Map) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            ((Map<?, ?>) value).forEach((key, element) -> map.put((String) key, numbersAsDoubles(element)));
+            return map;
+        }
+        return value;
+    }
+
+    /** Rotates calls over several channels to the same target. */
+    static final class ChannelPool extends ManagedChannel {
+        private final List<ManagedChannel> channels;
+        private final AtomicInteger next = new AtomicInteger();
+
+        ChannelPool(List<ManagedChannel> channels) {
+            this.channels = List.copyOf(channels);
+        }
+
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+            return channels.get(Math.floorMod(next.getAndIncrement(), channels.size())).newCall(method, callOptions);
+        }
+
+        @Override
+        public String authority() {
+            return channels.get(0).authority();
+        }
+
+        @Override
+        public ManagedChannel shutdown() {
+            channels.forEach(ManagedChannel::shutdown);
+            return this;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return channels.stream().allMatch(ManagedChannel::isShutdown);
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return channels.stream().allMatch(ManagedChannel::isTerminated);
+        }
+
+        @Override
+        public ManagedChannel shutdownNow() {
+            channels.forEach(ManagedChannel::shutdownNow);
+            return this;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            for (ManagedChannel channel : channels) {
+                if (!channel.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
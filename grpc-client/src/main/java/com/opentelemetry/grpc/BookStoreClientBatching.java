@@ -0,0 +1,174 @@
+package com.opentelemetry.grpc;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.opentelemetry.common.AsyncLogger;
+import com.opentelemetry.proto.Book;
+import com.opentelemetry.proto.BookBatch;
+import com.opentelemetry.proto.BookSearch;
+import com.opentelemetry.proto.BookSearchBatch;
+import com.opentelemetry.proto.BookStoreGrpc;
+import io.grpc.Channel;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces individual book lookups into {@code firstBatch} calls.
+ *
+ * A batch is sent as soon as it holds {@code maxBatchSize} lookups, or once {@code window} has passed
+ * since its first lookup, whichever comes first. Each lookup gets its own future, completed with the
+ * matching book or with {@code null} when the search had no match.
+ */
+public class BookStoreClientBatching implements AutoCloseable {
+    private static final AsyncLogger logger = AsyncLogger.getLogger(BookStoreClientBatching.class);
+    private final BookStoreGrpc.BookStoreFutureStub futureStub;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+
+    private final Object lock = new Object();
+    private List<PendingLookup> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean closed;
+
+    public BookStoreClientBatching(Channel channel, long window, TimeUnit unit, int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        this.futureStub = BookStoreGrpc.newFutureStub(channel);
+        this.windowNanos = unit.toNanos(window);
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "book-batch-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CompletableFuture<Book> getBook(String bookName) {
+        return first(BookSearch.newBuilder().setName(bookName).build());
+    }
+
+    public CompletableFuture<Book> first(BookSearch search) {
+        PendingLookup lookup = new PendingLookup(search);
+        List<PendingLookup> full = null;
+        synchronized (lock) {
+            if (closed) {
+                lookup.future.completeExceptionally(
+                        Status.UNAVAILABLE.withDescription("Batcher is closed").asRuntimeException());
+                return lookup.future;
+            }
+            pending.add(lookup);
+            if (pending.size() >= maxBatchSize) {
+                full = drain();
+            } else if (pending.size() == 1) {
+                scheduledFlush = scheduler.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return lookup.future;
+    }
+
+    /** Sends whatever is pending without waiting for the window to close. */
+    public void flush() {
+        List<PendingLookup> batch;
+        synchronized (lock) {
+            batch = drain();
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        flush();
+        scheduler.shutdown();
+    }
+
+    // Must hold lock
+    private List<PendingLookup> drain() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        List<PendingLookup> batch = pending;
+        pending = new ArrayList<>(Math.min(maxBatchSize, 64));
+        return batch;
+    }
+
+    private void send(List<PendingLookup> batch) {
+        BookSearchBatch.Builder request = BookSearchBatch.newBuilder();
+        for (PendingLookup lookup : batch) {
+            request.addSearches(lookup.search);
+        }
+        logger.fine("Sending batch of {0} lookups", batch.size());
+        Futures.addCallback(futureStub.firstBatch(request.build()), new FutureCallback<BookBatch>() {
+            @Override
+            public void onSuccess(BookBatch response) {
+                for (int i = 0; i < batch.size(); i++) {
+                    if (i >= response.getBooksCount()) {
+                        batch.get(i).future.completeExceptionally(Status.INTERNAL
+                                .withDescription("Batch response is missing entries").asRuntimeException());
+                        continue;
+                    }
+                    Book book = response.getBooks(i);
+                    batch.get(i).future.complete(book.getName().isEmpty() ? null : book);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                for (PendingLookup lookup : batch) {
+                    lookup.future.completeExceptionally(t);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private static final class PendingLookup {
+        final BookSearch search;
+        final CompletableFuture<Book> future = new CompletableFuture<>();
+
+        PendingLookup(BookSearch search) {
+            this.search = search;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String serverAddress = System.getProperty("bookstore.target", "localhost:50051");
+
+        ManagedChannel channel = BookStoreChannels.forTarget(serverAddress);
+
+        try (BookStoreClientBatching client = new BookStoreClientBatching(channel, 2, TimeUnit.MILLISECONDS, 64)) {
+            List<CompletableFuture<Book>> lookups = new ArrayList<>();
+            for (String bookName : args) {
+                lookups.add(client.getBook(bookName));
+            }
+            for (int i = 0; i < args.length; i++) {
+                try {
+                    logger.info("Got following book for {0}: {1}", args[i], lookups.get(i).get(5, TimeUnit.SECONDS));
+                } catch (Exception e) {
+                    logger.warning("Lookup for " + args[i] + " failed", e);
+                }
+            }
+        } finally {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            AsyncLogger.flush();
+        }
+    }
+}
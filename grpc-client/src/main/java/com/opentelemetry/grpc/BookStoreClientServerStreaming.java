@@ -0,0 +1,75 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.common.AsyncLogger;
+import com.opentelemetry.proto.BookMatch;
+import com.opentelemetry.proto.BookSearch;
+import com.opentelemetry.proto.BookSearchAll;
+import com.opentelemetry.proto.BookStoreGrpc;
+import io.grpc.Channel;
+import io.grpc.ManagedChannel;
+import io.grpc.StatusRuntimeException;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+public class BookStoreClientServerStreaming {
+    private static final AsyncLogger logger = AsyncLogger.getLogger(BookStoreClientServerStreaming.class);
+    private final BookStoreGrpc.BookStoreBlockingStub blockingStub;
+
+    public BookStoreClientServerStreaming(Channel channel) {
+        blockingStub = BookStoreGrpc.newBlockingStub(channel);
+    }
+
+    /**
+     * Streams every book whose title starts with {@code bookName}, {@code pageSize} books per call.
+     * The blocking iterator only requests the next message once the previous one has been consumed,
+     * so the server never runs ahead of this client.
+     */
+    public void getAllBooks(String bookName, int pageSize) {
+        logger.info("Querying for all books with title: {0}", bookName);
+        BookSearch search = BookSearch.newBuilder().setName(bookName).build();
+        String pageToken = "";
+        int total = 0;
+        try {
+            while (true) {
+                BookSearchAll request = BookSearchAll.newBuilder()
+                        .setSearch(search)
+                        .setLimit(pageSize)
+                        .setPageToken(pageToken)
+                        .build();
+                int received = 0;
+                Iterator<BookMatch> matches = blockingStub.searchAll(request);
+                while (matches.hasNext()) {
+                    BookMatch match = matches.next();
+                    logger.info("Got following book from server: {0}", match.getBook());
+                    pageToken = match.getPageToken();
+                    received++;
+                }
+                total += received;
+                if (pageSize == 0 || received < pageSize) {
+                    break;
+                }
+            }
+        } catch (StatusRuntimeException e) {
+            logger.warning("RPC failed: {0}", e.getStatus());
+            return;
+        }
+        logger.info("Received {0} books in total", total);
+    }
+
+    public static void main(String[] args) throws Exception {
+        String bookName = args[0];
+        int pageSize = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        String serverAddress = System.getProperty("bookstore.target", "localhost:50051");
+
+        ManagedChannel channel = BookStoreChannels.forTarget(serverAddress);
+
+        try {
+            BookStoreClientServerStreaming client = new BookStoreClientServerStreaming(channel);
+            client.getAllBooks(bookName, pageSize);
+        } finally {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            AsyncLogger.flush();
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.opentelemetry.grpc;
 
+import com.opentelemetry.common.AsyncLogger;
 import com.opentelemetry.common.OtelSdkConfiguration;
 import com.opentelemetry.proto.Book;
 import com.opentelemetry.proto.BookSearch;
 import com.opentelemetry.proto.BookStoreGrpc;
+import com.opentelemetry.proto.FuzzySearch;
+import com.opentelemetry.proto.ScoredBooks;
 import io.grpc.*;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.trace.Span;
@@ -16,36 +19,48 @@ import io.opentelemetry.context.propagation.TextMapSetter;
 import static io.grpc.Metadata.ASCII_STRING_MARSHALLER;
 
 import java.util.concurrent.TimeUnit;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 public class BookStoreClientUnaryBlocking {
-    private static final Logger logger = Logger.getLogger(BookStoreClientUnaryBlocking.class.getName());
+    private static final AsyncLogger logger = AsyncLogger.getLogger(BookStoreClientUnaryBlocking.class);
     private final BookStoreGrpc.BookStoreBlockingStub blockingStub;
     public BookStoreClientUnaryBlocking(Channel channel) {
         blockingStub = BookStoreGrpc.newBlockingStub(channel);
     }
 
     public void getBook(String bookName) {
-        logger.info("Querying for book with title: " + bookName);
+        logger.info("Querying for book with title: {0}", bookName);
         BookSearch request = BookSearch.newBuilder().setName(bookName).build();
 
         Book response;
         try {
             response = blockingStub.first(request);
         } catch (StatusRuntimeException e) {
-            logger.log(Level.WARNING, "RPC failed: {0}", e.getStatus());
+            logger.warning("RPC failed: {0}", e.getStatus());
+            if (e.getStatus().getCode() == Status.Code.NOT_FOUND) {
+                suggest(bookName);
+            }
             return;
         }
-        logger.info("Got following book from server: " + response);
+        logger.info("Got following book from server: {0}", response);
+    }
+
+    /** A typo or different casing defeats the exact title search, so ask for the closest books. */
+    private void suggest(String bookName) {
+        if (bookName.trim().length() < 3) {
+            return;
+        }
+        try {
+            ScoredBooks matches = blockingStub.fuzzySearch(FuzzySearch.newBuilder().setQuery(bookName).setLimit(3).build());
+            logger.info("Closest matches: {0}", matches);
+        } catch (StatusRuntimeException e) {
+            logger.warning("Fuzzy search failed: {0}", e.getStatus());
+        }
     }
     public static void main(String[] args) throws Exception {
         String bookName = args[0];
-        String serverAddress = "localhost:50051";
+        String serverAddress = System.getProperty("bookstore.target", "localhost:50051");
 
-        ManagedChannel channel = ManagedChannelBuilder.forTarget(serverAddress)
-                .usePlaintext()
-                .build();
+        ManagedChannel channel = BookStoreChannels.forTarget(serverAddress);
 
         try {
             BookStoreClientUnaryBlocking client = new BookStoreClientUnaryBlocking(channel);
@@ -53,6 +68,7 @@ public class BookStoreClientUnaryBlocking {
         } finally {
             channel.shutdownNow().awaitTermination(5,
                     TimeUnit.SECONDS);
+            AsyncLogger.flush();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,259 @@
+package com.opentelemetry.grpc;
+
+import io.grpc.ClientStreamTracer;
+import io.grpc.ConnectivityState;
+import io.grpc.ConnectivityStateInfo;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.LoadBalancer;
+import io.grpc.LoadBalancerProvider;
+import io.grpc.Metadata;
+import io.grpc.Status;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Sends each call to the less loaded of two randomly chosen healthy backends, where load is the
+ * number of calls the backend has in flight on this channel.
+ *
+ * A backend is healthy while its connection is READY and it has not been ejected. After
+ * {@value #EJECTION_FAILURES} calls in a row fail with {@code UNAVAILABLE}, the backend is ejected
+ * for {@value #EJECTION_SECONDS} seconds. This catches servers that still accept connections but
+ * cannot serve. If every ready backend is ejected, they are used anyway rather than failing
+ * every call.
+ */
+final class LeastRequestLoadBalancer extends LoadBalancer {
+    static final String POLICY_NAME = "least_request";
+    private static final Logger logger = Logger.getLogger(LeastRequestLoadBalancer.class.getName());
+    private static final int EJECTION_FAILURES = 5;
+    private static final long EJECTION_SECONDS = 10;
+
+    private final Helper helper;
+    private final Map<EquivalentAddressGroup, Backend> backends = new HashMap<>();
+    private Status resolutionError;
+
+    LeastRequestLoadBalancer(Helper helper) {
+        this.helper = helper;
+    }
+
+    @Override
+    public void handleResolvedAddresses(ResolvedAddresses resolvedAddresses) {
+        resolutionError = null;
+        Set<EquivalentAddressGroup> wanted = new HashSet<>();
+        for (EquivalentAddressGroup group : resolvedAddresses.getAddresses()) {
+            // Attributes do not identify a backend
+            wanted.add(new EquivalentAddressGroup(group.getAddresses()));
+        }
+        backends.entrySet().removeIf(entry -> {
+            if (wanted.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().subchannel.shutdown();
+            return true;
+        });
+        for (EquivalentAddressGroup group : wanted) {
+            if (!backends.containsKey(group)) {
+                Backend backend = new Backend(group);
+                backends.put(group, backend);
+                backend.subchannel.start(state -> onSubchannelState(backend, state));
+                backend.subchannel.requestConnection();
+            }
+        }
+        if (backends.isEmpty()) {
+            handleNameResolutionError(Status.UNAVAILABLE.withDescription("No backends resolved"));
+            return;
+        }
+        updateBalancingState();
+    }
+
+    @Override
+    public void handleNameResolutionError(Status error) {
+        resolutionError = error;
+        if (backends.isEmpty()) {
+            helper.updateBalancingState(ConnectivityState.TRANSIENT_FAILURE,
+                    new FixedPicker(PickResult.withError(error)));
+        }
+    }
+
+    @Override
+    public void requestConnection() {
+        for (Backend backend : backends.values()) {
+            backend.subchannel.requestConnection();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        for (Backend backend : backends.values()) {
+            backend.subchannel.shutdown();
+        }
+        backends.clear();
+    }
+
+    private void onSubchannelState(Backend backend, ConnectivityStateInfo state) {
+        if (backends.get(backend.addresses) != backend) {
+            return;
+        }
+        if (state.getState() != backend.state.getState()) {
+            logger.info("Backend " + backend.addresses.getAddresses() + " is " + state.getState());
+        }
+        backend.state = state;
+        if (state.getState() == ConnectivityState.IDLE) {
+            backend.subchannel.requestConnection();
+        }
+        updateBalancingState();
+    }
+
+    private void updateBalancingState() {
+        List<Backend> ready = new ArrayList<>();
+        boolean connecting = false;
+        Status failure = resolutionError;
+        for (Backend backend : backends.values()) {
+            switch (backend.state.getState()) {
+                case READY:
+                    ready.add(backend);
+                    break;
+                case CONNECTING:
+                case IDLE:
+                    connecting = true;
+                    break;
+                default:
+                    failure = backend.state.getStatus();
+            }
+        }
+        if (!ready.isEmpty()) {
+            helper.updateBalancingState(ConnectivityState.READY, new Picker(ready.toArray(new Backend[0])));
+        } else if (connecting || failure == null) {
+            helper.updateBalancingState(ConnectivityState.CONNECTING, new FixedPicker(PickResult.withNoResult()));
+        } else {
+            helper.updateBalancingState(ConnectivityState.TRANSIENT_FAILURE,
+                    new FixedPicker(PickResult.withError(failure)));
+        }
+    }
+
+    /** One backend address, its connection and its in-flight and failure counts. */
+    private final class Backend extends ClientStreamTracer.Factory {
+        final EquivalentAddressGroup addresses;
+        final Subchannel subchannel;
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicInteger consecutiveFailures = new AtomicInteger();
+        volatile long ejectedUntilNanos;
+        ConnectivityStateInfo state = ConnectivityStateInfo.forNonError(ConnectivityState.IDLE);
+
+        Backend(EquivalentAddressGroup addresses) {
+            this.addresses = addresses;
+            this.subchannel = helper.createSubchannel(CreateSubchannelArgs.newBuilder()
+                    .setAddresses(addresses)
+                    .build());
+        }
+
+        boolean ejected(long nowNanos) {
+            long until = ejectedUntilNanos;
+            return until != 0 && nowNanos - until < 0;
+        }
+
+        @Override
+        public ClientStreamTracer newClientStreamTracer(ClientStreamTracer.StreamInfo info, Metadata headers) {
+            outstanding.incrementAndGet();
+            return new ClientStreamTracer() {
+                @Override
+                public void streamClosed(Status status) {
+                    outstanding.decrementAndGet();
+                    if (status.getCode() != Status.Code.UNAVAILABLE) {
+                        consecutiveFailures.set(0);
+                    } else if (consecutiveFailures.incrementAndGet() >= EJECTION_FAILURES) {
+                        consecutiveFailures.set(0);
+                        ejectedUntilNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(EJECTION_SECONDS);
+                        logger.warning("Ejecting backend " + addresses.getAddresses() + " for "
+                                + EJECTION_SECONDS + "s after " + EJECTION_FAILURES + " UNAVAILABLE calls");
+                    }
+                }
+            };
+        }
+    }
+
+    /** Power of two choices over the ready backends, skipping ejected ones where possible. */
+    private static final class Picker extends SubchannelPicker {
+        private final Backend[] ready;
+
+        Picker(Backend[] ready) {
+            this.ready = ready;
+        }
+
+        @Override
+        public PickResult pickSubchannel(PickSubchannelArgs args) {
+            Backend chosen = choose(System.nanoTime(), true);
+            if (chosen == null) {
+                chosen = choose(0, false);
+            }
+            // The backend doubles as the tracer factory that counts the call while it is in flight
+            return PickResult.withSubchannel(chosen.subchannel, chosen);
+        }
+
+        private Backend choose(long nowNanos, boolean skipEjected) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Backend best = null;
+            // Two random probes, then a scan if both landed on ejected backends
+            for (int i = 0; i < 2; i++) {
+                Backend candidate = ready[random.nextInt(ready.length)];
+                if (skipEjected && candidate.ejected(nowNanos)) {
+                    continue;
+                }
+                if (best == null || candidate.outstanding.get() < best.outstanding.get()) {
+                    best = candidate;
+                }
+            }
+            if (best == null) {
+                for (Backend candidate : ready) {
+                    if (!skipEjected || !candidate.ejected(nowNanos)) {
+                        return candidate;
+                    }
+                }
+            }
+            return best;
+        }
+    }
+
+    private static final class FixedPicker extends SubchannelPicker {
+        private final PickResult result;
+
+        FixedPicker(PickResult result) {
+            this.result = result;
+        }
+
+        @Override
+        public PickResult pickSubchannel(PickSubchannelArgs args) {
+            return result;
+        }
+    }
+
+    static final class Provider extends LoadBalancerProvider {
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public int getPriority() {
+            return 5;
+        }
+
+        @Override
+        public String getPolicyName() {
+            return POLICY_NAME;
+        }
+
+        @Override
+        public LoadBalancer newLoadBalancer(Helper helper) {
+            return new LeastRequestLoadBalancer(helper);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.opentelemetry.grpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.opentelemetry.proto.BookSearch;
+import com.opentelemetry.proto.BookStoreGrpc;
+import com.opentelemetry.proto.ClientInput;
+import com.opentelemetry.proto.GreeterGrpc;
+import io.grpc.ManagedChannel;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+import java.util.logging.Logger;
+
+/**
+ * Drives load against a BookStore or Greeter server and reports latency percentiles and throughput.
+ *
+ * <ul>
+ *   <li>Closed loop ({@code --mode=closed}): {@code --concurrency} calls are kept in flight, each
+ *       completion immediately issuing the next call.
+ *   <li>Open loop ({@code --mode=open}): calls are issued at a fixed {@code --rate} per second
+ *       regardless of how fast the server answers. Latency is measured from each call's intended
+ *       start time, so time spent waiting behind a stalled sender is not lost (coordinated-omission
+ *       correction); the uncorrected service time is reported alongside.
+ * </ul>
+ *
+ * Queries are read from a JSON-lines file ({@code --queries}, default {@code requests.jsonl}), one
+ * object per line with an optional integer {@code weight}. BookStore queries use {@code name},
+ * {@code author} and {@code genre}; Greeter queries use {@code greeting} and {@code name}. Lines
+ * carrying none of these fields are skipped. Other options: {@code --target}, {@code --service}
+ * ({@code bookstore} or {@code greeter}), {@code --duration} and {@code --warmup} in seconds.
+ */
+public class LoadGeneratorClient {
+    private static final Logger logger = Logger.getLogger(LoadGeneratorClient.class.getName());
+    // Latencies are recorded in microseconds, up to one minute
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final IntFunction<ListenableFuture<?>> caller;
+    private final int queryCount;
+    private final Histogram latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+    private final Histogram serviceTime = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong outstanding = new AtomicLong();
+
+    LoadGeneratorClient(IntFunction<ListenableFuture<?>> caller, int queryCount) {
+        this.caller = caller;
+        this.queryCount = queryCount;
+    }
+
+    /** Keeps {@code concurrency} calls in flight until {@code endNanos}. */
+    void runClosedLoop(int concurrency, long measureFromNanos, long endNanos) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            issueClosed(i, measureFromNanos, endNanos, done);
+        }
+        done.await();
+    }
+
+    private void issueClosed(int sequence, long measureFromNanos, long endNanos, CountDownLatch done) {
+        long start = System.nanoTime();
+        if (start >= endNanos) {
+            done.countDown();
+            return;
+        }
+        outstanding.incrementAndGet();
+        Futures.addCallback(caller.apply(sequence % queryCount), new FutureCallback<Object>() {
+            @Override
+            public void onSuccess(Object result) {
+                finish(start, start, measureFromNanos, true);
+                issueClosed(sequence + 1, measureFromNanos, endNanos, done);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                finish(start, start, measureFromNanos, false);
+                issueClosed(sequence + 1, measureFromNanos, endNanos, done);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    /** Issues {@code ratePerSecond} calls per second until {@code endNanos}, then waits for stragglers. */
+    void runOpenLoop(double ratePerSecond, long startNanos, long measureFromNanos, long endNanos)
+            throws InterruptedException {
+        double intervalNanos = 1_000_000_000d / ratePerSecond;
+        for (long i = 0; ; i++) {
+            long intended = startNanos + (long) (i * intervalNanos);
+            if (intended >= endNanos) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            long sent = System.nanoTime();
+            outstanding.incrementAndGet();
+            Futures.addCallback(caller.apply((int) (i % queryCount)), new FutureCallback<Object>() {
+                @Override
+                public void onSuccess(Object result) {
+                    finish(intended, sent, measureFromNanos, true);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    finish(intended, sent, measureFromNanos, false);
+                }
+            }, MoreExecutors.directExecutor());
+        }
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (outstanding.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void finish(long intendedNanos, long sentNanos, long measureFromNanos, boolean ok) {
+        long now = System.nanoTime();
+        outstanding.decrementAndGet();
+        if (intendedNanos < measureFromNanos) {
+            return;
+        }
+        if (!ok) {
+            errors.incrementAndGet();
+            return;
+        }
+        completed.incrementAndGet();
+        latency.recordValue(Math.min(MAX_LATENCY_MICROS, (now - intendedNanos) / 1000));
+        serviceTime.recordValue(Math.min(MAX_LATENCY_MICROS, (now - sentNanos) / 1000));
+    }
+
+    void report(String mode, double measuredSeconds) {
+        StringBuilder report = new StringBuilder()
+                .append(String.format("%n%s loop: %d calls, %d errors, %.1f calls/s%n",
+                        mode, completed.get(), errors.get(), completed.get() / measuredSeconds));
+        appendPercentiles(report, "latency (ms)", latency);
+        if ("open".equals(mode)) {
+            appendPercentiles(report, "service time, uncorrected (ms)", serviceTime);
+        }
+        logger.info(report.toString());
+    }
+
+    private static void appendPercentiles(StringBuilder report, String label, Histogram histogram) {
+        report.append(String.format("  %-32s p50=%.3f p90=%.3f p99=%.3f p999=%.3f max=%.3f mean=%.3f%n", label,
+                histogram.getValueAtPercentile(50) / 1000d,
+                histogram.getValueAtPercentile(90) / 1000d,
+                histogram.getValueAtPercentile(99) / 1000d,
+                histogram.getValueAtPercentile(99.9) / 1000d,
+                histogram.getMaxValue() / 1000d,
+                histogram.getMean() / 1000d));
+    }
+
+    /** Reads the weighted query mix, expanding each line {@code weight} times. */
+    static List<JsonNode> readQueries(Path file, String... fields) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<JsonNode> queries = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode query = mapper.readTree(line);
+            boolean relevant = false;
+            for (String field : fields) {
+                relevant |= query.hasNonNull(field);
+            }
+            if (!relevant) {
+                continue;
+            }
+            int weight = Math.max(1, query.path("weight").asInt(1));
+            for (int i = 0; i < weight; i++) {
+                queries.add(query);
+            }
+        }
+        if (queries.isEmpty()) {
+            throw new IllegalArgumentException("No usable queries in " + file);
+        }
+        return queries;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --option=value but got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String serverAddress = options.getOrDefault("target", "localhost:50051");
+        String service = options.getOrDefault("service", "bookstore");
+        String mode = options.getOrDefault("mode", "closed");
+        Path queryFile = Path.of(options.getOrDefault("queries", "requests.jsonl"));
+        long durationSeconds = Long.parseLong(options.getOrDefault("duration", "30"));
+        long warmupSeconds = Long.parseLong(options.getOrDefault("warmup", "5"));
+
+        ManagedChannel channel = BookStoreChannels.forTarget(serverAddress);
+
+        try {
+            IntFunction<ListenableFuture<?>> caller;
+            int queryCount;
+            if ("bookstore".equals(service)) {
+                List<JsonNode> queries = readQueries(queryFile, "name", "author", "genre");
+                BookSearch[] searches = new BookSearch[queries.size()];
+                for (int i = 0; i < searches.length; i++) {
+                    JsonNode query = queries.get(i);
+                    searches[i] = BookSearch.newBuilder()
+                            .setName(query.path("name").asText(""))
+                            .setAuthor(query.path("author").asText(""))
+                            .setGenre(query.path("genre").asText(""))
+                            .build();
+                }
+                BookStoreGrpc.BookStoreFutureStub stub = BookStoreGrpc.newFutureStub(channel);
+                caller = i -> stub.first(searches[i]);
+                queryCount = searches.length;
+            } else if ("greeter".equals(service)) {
+                List<JsonNode> queries = readQueries(queryFile, "greeting", "name");
+                ClientInput[] inputs = new ClientInput[queries.size()];
+                for (int i = 0; i < inputs.length; i++) {
+                    JsonNode query = queries.get(i);
+                    inputs[i] = ClientInput.newBuilder()
+                            .setGreeting(query.path("greeting").asText("Hello"))
+                            .setName(query.path("name").asText(""))
+                            .build();
+                }
+                GreeterGrpc.GreeterFutureStub stub = GreeterGrpc.newFutureStub(channel);
+                caller = i -> stub.greet(inputs[i]);
+                queryCount = inputs.length;
+            } else {
+                throw new IllegalArgumentException("Unknown service: " + service);
+            }
+
+            LoadGeneratorClient generator = new LoadGeneratorClient(caller, queryCount);
+            long start = System.nanoTime();
+            long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+            long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+            logger.info("Running " + mode + " loop against " + service + " at " + serverAddress
+                    + " with " + queryCount + " weighted queries");
+            if ("closed".equals(mode)) {
+                generator.runClosedLoop(Integer.parseInt(options.getOrDefault("concurrency", "16")), measureFrom, end);
+            } else if ("open".equals(mode)) {
+                generator.runOpenLoop(Double.parseDouble(options.getOrDefault("rate", "1000")), start, measureFrom, end);
+            } else {
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+            }
+            generator.report(mode, durationSeconds);
+        } finally {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+}
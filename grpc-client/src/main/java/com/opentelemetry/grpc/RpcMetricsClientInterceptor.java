@@ -0,0 +1,43 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.common.RpcMetrics;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+/**
+ * Records the client-side {@link RpcMetrics} of every call, whether or not tracing is enabled.
+ *
+ * A call is timed from its start until it is closed, retries included.
+ */
+class RpcMetricsClientInterceptor implements ClientInterceptor {
+    private final RpcMetrics metrics;
+
+    RpcMetricsClientInterceptor(RpcMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT>
+    interceptCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+        return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+            @Override
+            public void start(Listener<RespT> responseListener, Metadata headers) {
+                long startNanos = System.nanoTime();
+                super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(responseListener) {
+                    @Override
+                    public void onClose(Status status, Metadata trailers) {
+                        metrics.record(method, status.getCode(), System.nanoTime() - startNanos);
+                        super.onClose(status, trailers);
+                    }
+                }, headers);
+            }
+        };
+    }
+}
@@ -0,0 +1,150 @@
+package com.opentelemetry.grpc;
+
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.NameResolver;
+import io.grpc.NameResolverProvider;
+import io.grpc.Status;
+import io.grpc.SynchronizationContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Resolves a fixed list of backend addresses, either inline or from a file.
+ *
+ * <ul>
+ *   <li>{@code static:///localhost:50051,localhost:50052} lists the backends in the target itself.
+ *   <li>{@code file:///path/to/backends.txt} reads one {@code host:port} per line. Blank lines and
+ *       lines starting with {@code #} are ignored. The file is re-read every five seconds and
+ *       whenever the channel asks for a refresh, so backends can be added or removed while the
+ *       client runs.
+ * </ul>
+ */
+final class StaticNameResolverProvider extends NameResolverProvider {
+    private static final Logger logger = Logger.getLogger(StaticNameResolverProvider.class.getName());
+    static final String STATIC = "static";
+    static final String FILE = "file";
+    private static final long FILE_REFRESH_SECONDS = 5;
+
+    private final String scheme;
+
+    StaticNameResolverProvider(String scheme) {
+        this.scheme = scheme;
+    }
+
+    @Override
+    protected boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    protected int priority() {
+        return 5;
+    }
+
+    @Override
+    public String getDefaultScheme() {
+        return scheme;
+    }
+
+    @Override
+    public NameResolver newNameResolver(URI targetUri, NameResolver.Args args) {
+        if (!scheme.equals(targetUri.getScheme())) {
+            return null;
+        }
+        return new Resolver(targetUri.getPath().substring(1), args);
+    }
+
+    private final class Resolver extends NameResolver {
+        private final String spec;
+        private final SynchronizationContext syncContext;
+        private final ScheduledExecutorService scheduler;
+        private Listener2 listener;
+        private List<String> lastBackends;
+        private SynchronizationContext.ScheduledHandle refreshHandle;
+
+        Resolver(String spec, Args args) {
+            this.spec = spec;
+            this.syncContext = args.getSynchronizationContext();
+            this.scheduler = args.getScheduledExecutorService();
+        }
+
+        @Override
+        public String getServiceAuthority() {
+            return "bookstore";
+        }
+
+        @Override
+        public void start(Listener2 listener) {
+            this.listener = listener;
+            resolve();
+        }
+
+        @Override
+        public void refresh() {
+            resolve();
+        }
+
+        // Runs in the synchronization context
+        private void resolve() {
+            try {
+                List<String> backends = FILE.equals(scheme)
+                        ? readBackends(Path.of("/" + spec)) : Arrays.asList(spec.split(","));
+                if (!backends.equals(lastBackends)) {
+                    List<EquivalentAddressGroup> addresses = new ArrayList<>(backends.size());
+                    for (String backend : backends) {
+                        addresses.add(new EquivalentAddressGroup(parse(backend.trim())));
+                    }
+                    logger.info("Resolved backends " + backends);
+                    lastBackends = backends;
+                    listener.onResult(ResolutionResult.newBuilder().setAddresses(addresses).build());
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                listener.onError(Status.UNAVAILABLE.withDescription("Cannot resolve backends " + spec).withCause(e));
+            }
+            scheduleRefresh();
+        }
+
+        private void scheduleRefresh() {
+            if (FILE.equals(scheme) && (refreshHandle == null || !refreshHandle.isPending())) {
+                refreshHandle = syncContext.schedule(this::resolve, FILE_REFRESH_SECONDS, TimeUnit.SECONDS, scheduler);
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            if (refreshHandle != null) {
+                refreshHandle.cancel();
+            }
+        }
+    }
+
+    private static List<String> readBackends(Path file) throws IOException {
+        List<String> backends = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                backends.add(line);
+            }
+        }
+        return backends;
+    }
+
+    private static SocketAddress parse(String backend) {
+        int colon = backend.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Expected host:port but got " + backend);
+        }
+        return new InetSocketAddress(backend.substring(0, colon), Integer.parseInt(backend.substring(colon + 1)));
+    }
+}
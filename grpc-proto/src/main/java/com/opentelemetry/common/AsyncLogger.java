@@ -0,0 +1,167 @@
+package com.opentelemetry.common;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * A {@link Logger} front end for code on the RPC path that never formats or writes on the calling
+ * thread.
+ *
+ * Each call first checks the level, then the per-call sampling decision. Only then is a
+ * {@link LogRecord} queued, carrying the message pattern and its parameters. Handlers format and
+ * write it on a single background thread. Parameters are therefore formatted later, so they must be
+ * immutable (protobuf messages, strings, numbers). The {@link Supplier} overloads build the
+ * message on the calling thread, for mutable values such as {@code Metadata}, but still only after
+ * both checks pass.
+ *
+ * The queue holds {@code log.async.queue.size} records (default 8192). When it is full, new
+ * records are dropped and counted, and the writer reports the count once it catches up. The writer
+ * is a daemon thread, so a short-lived program calls {@link #flush()} before it exits.
+ *
+ * {@link #callSampler()} keeps a random {@code log.sample.ratio} of server calls (default 1.0).
+ * Everything logged while an unsampled call is handled is skipped, so a sampled call keeps all of
+ * its lines. Logging outside a call is always sampled.
+ */
+public final class AsyncLogger {
+  private static final Context.Key<Boolean> SAMPLED = Context.keyWithDefault("log-sampled", Boolean.TRUE);
+  private static final BlockingQueue<LogRecord> queue =
+      new ArrayBlockingQueue<>(Integer.getInteger("log.async.queue.size", 8192));
+  private static final LongAdder dropped = new LongAdder();
+
+  static {
+    Thread writer = new Thread(AsyncLogger::writeLoop, "async-log-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  private final Logger logger;
+
+  private AsyncLogger(Logger logger) {
+    this.logger = logger;
+  }
+
+  public static AsyncLogger getLogger(Class<?> type) {
+    return new AsyncLogger(Logger.getLogger(type.getName()));
+  }
+
+  /** Whether a record at {@code level} would be kept for the current call. */
+  public boolean isLoggable(Level level) {
+    return logger.isLoggable(level) && SAMPLED.get();
+  }
+
+  public void info(String message) {
+    log(Level.INFO, message, null, null);
+  }
+
+  public void info(String pattern, Object param) {
+    log(Level.INFO, pattern, new Object[] {param}, null);
+  }
+
+  public void info(String pattern, Object param1, Object param2) {
+    log(Level.INFO, pattern, new Object[] {param1, param2}, null);
+  }
+
+  public void info(Supplier<String> message) {
+    log(Level.INFO, message);
+  }
+
+  public void fine(String pattern, Object param) {
+    log(Level.FINE, pattern, new Object[] {param}, null);
+  }
+
+  public void warning(String pattern, Object param) {
+    log(Level.WARNING, pattern, new Object[] {param}, null);
+  }
+
+  public void warning(String message, Throwable thrown) {
+    log(Level.WARNING, message, null, thrown);
+  }
+
+  public void log(Level level, Supplier<String> message) {
+    if (isLoggable(level)) {
+      enqueue(new LogRecord(level, message.get()), null);
+    }
+  }
+
+  private void log(Level level, String pattern, Object[] params, Throwable thrown) {
+    if (!isLoggable(level)) {
+      return;
+    }
+    LogRecord record = new LogRecord(level, pattern);
+    record.setParameters(params);
+    enqueue(record, thrown);
+  }
+
+  private void enqueue(LogRecord record, Throwable thrown) {
+    record.setLoggerName(logger.getName());
+    // Naming the source up front stops the writer thread inferring it from its own stack
+    record.setSourceClassName(logger.getName());
+    record.setSourceMethodName(null);
+    record.setThrown(thrown);
+    if (!queue.offer(record)) {
+      dropped.increment();
+    }
+  }
+
+  /** Records dropped because the queue was full. */
+  public static long droppedRecords() {
+    return dropped.sum();
+  }
+
+  private static void writeLoop() {
+    long reported = 0;
+    while (true) {
+      try {
+        write(queue.take());
+      } catch (InterruptedException e) {
+        return;
+      }
+      long total = dropped.sum();
+      if (total != reported && queue.isEmpty()) {
+        Logger.getLogger(AsyncLogger.class.getName()).warning("Dropped " + (total - reported)
+            + " log records because the queue was full");
+        reported = total;
+      }
+    }
+  }
+
+  private static synchronized void write(LogRecord record) {
+    Logger.getLogger(record.getLoggerName()).log(record);
+  }
+
+  /** Writes everything queued so far on the calling thread. */
+  public static void flush() {
+    LogRecord record;
+    while ((record = queue.poll()) != null) {
+      write(record);
+    }
+  }
+
+  /** Makes the sampling decision once per server call, see the class comment. */
+  public static ServerInterceptor callSampler() {
+    double ratio = Double.parseDouble(System.getProperty("log.sample.ratio", "1.0"));
+    return new ServerInterceptor() {
+      @Override
+      public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+          ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        if (ratio >= 1.0 || ThreadLocalRandom.current().nextDouble() < ratio) {
+          return next.startCall(call, headers);
+        }
+        return Contexts.interceptCall(Context.current().withValue(SAMPLED, Boolean.FALSE), call, headers, next);
+      }
+    };
+  }
+}
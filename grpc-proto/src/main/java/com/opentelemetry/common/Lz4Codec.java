@@ -0,0 +1,32 @@
+package com.opentelemetry.common;
+
+import io.grpc.Codec;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * LZ4 message compression in the standard frame format. It compresses less than gzip but costs a
+ * fraction of the CPU time, which suits large responses on fast local networks.
+ */
+public final class Lz4Codec implements Codec {
+  public static final String ENCODING = "lz4";
+
+  @Override
+  public String getMessageEncoding() {
+    return ENCODING;
+  }
+
+  @Override
+  public OutputStream compress(OutputStream os) throws IOException {
+    return new LZ4FrameOutputStream(os, LZ4FrameOutputStream.BLOCKSIZE.SIZE_64KB);
+  }
+
+  @Override
+  public InputStream decompress(InputStream is) throws IOException {
+    return new LZ4FrameInputStream(is);
+  }
+}
@@ -0,0 +1,429 @@
+package com.opentelemetry.common;
+
+import com.google.protobuf.MessageLite;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.Codec;
+import io.grpc.CompressorRegistry;
+import io.grpc.DecompressorRegistry;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Opt-in message compression for servers and channels.
+ *
+ * {@code grpc.compression} lists the encodings to use in order of preference, e.g. {@code lz4,gzip}.
+ * It is empty by default, so nothing is compressed. Only messages of at least
+ * {@code grpc.compression.min.bytes} serialized bytes are compressed (default 1024), so small
+ * replies such as a single {@code Book} skip the codec entirely. A server answers with the first
+ * preferred encoding the client advertises in {@code grpc-accept-encoding}, and a client compresses
+ * requests with its first preferred encoding.
+ *
+ * The threshold applies to each message, because gRPC compresses every message on its own with no
+ * dictionary shared across a stream. The {@code searchAll} stream sends one small
+ * {@code BookMatch} per book, so its messages stay under the threshold and are never compressed;
+ * compressing them one by one would add codec overhead to a few hundred bytes each. Only replies
+ * that carry many books in one message, such as {@code firstBatch}, benefit.
+ *
+ * Every server and channel configured here can decompress gzip and LZ4, whether or not it
+ * compresses itself. Each compressed or decompressed message records
+ * {@code rpc.compression.uncompressed_bytes}, {@code rpc.compression.compressed_bytes}, the
+ * {@code rpc.compression.ratio} histogram and the {@code rpc.compression.cpu_time} histogram, by
+ * encoding and direction. The CPU time is the thread CPU time, in milliseconds, spent inside the
+ * codec's own calls; serializing or parsing the message around them is not counted.
+ */
+public final class MessageCompression {
+  private static final Logger logger = Logger.getLogger(MessageCompression.class.getName());
+  private static final Metadata.Key<String> ACCEPT_ENCODING =
+      Metadata.Key.of("grpc-accept-encoding", Metadata.ASCII_STRING_MARSHALLER);
+  private static final AttributeKey<String> ENCODING = AttributeKey.stringKey("encoding");
+  private static final AttributeKey<String> DIRECTION = AttributeKey.stringKey("direction");
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+  private static final boolean THREAD_CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+
+  private final List<String> preferred;
+  private final int minBytes;
+  private final CompressorRegistry compressors = CompressorRegistry.newEmptyInstance();
+  private final DecompressorRegistry decompressors;
+  private final LongCounter uncompressedBytes;
+  private final LongCounter compressedBytes;
+  private final DoubleHistogram ratio;
+  private final DoubleHistogram cpuTime;
+
+  MessageCompression(Meter meter, List<String> preferred, int minBytes) {
+    this.preferred = preferred;
+    this.minBytes = minBytes;
+    this.uncompressedBytes = meter.counterBuilder("rpc.compression.uncompressed_bytes")
+        .setDescription("Message bytes before compression or after decompression")
+        .setUnit("By")
+        .build();
+    this.compressedBytes = meter.counterBuilder("rpc.compression.compressed_bytes")
+        .setDescription("Message bytes on the wire")
+        .setUnit("By")
+        .build();
+    this.ratio = meter.histogramBuilder("rpc.compression.ratio")
+        .setDescription("Uncompressed size divided by compressed size, per message")
+        .setUnit("1")
+        .build();
+    this.cpuTime = meter.histogramBuilder("rpc.compression.cpu_time")
+        .setDescription("Thread CPU time spent inside the codec compressing or decompressing one message")
+        .setUnit("ms")
+        .build();
+    Codec gzip = new Codec.Gzip();
+    Codec lz4 = new Lz4Codec();
+    compressors.register(new MeteredCodec(gzip));
+    compressors.register(new MeteredCodec(lz4));
+    for (String encoding : preferred) {
+      if (compressors.lookupCompressor(encoding) == null) {
+        throw new IllegalArgumentException("Unknown grpc.compression encoding: " + encoding);
+      }
+    }
+    this.decompressors = DecompressorRegistry.emptyInstance()
+        .with(new MeteredCodec(gzip), true)
+        .with(new MeteredCodec(lz4), true)
+        .with(Codec.Identity.NONE, false);
+  }
+
+  private static MessageCompression fromProperties(Meter meter) {
+    String encodings = System.getProperty("grpc.compression", "").trim();
+    return new MessageCompression(meter,
+        encodings.isEmpty() ? List.of() : List.of(encodings.split("\\s*,\\s*")),
+        Integer.getInteger("grpc.compression.min.bytes", 1024));
+  }
+
+  /** Installs the codecs on {@code builder} and, when enabled, compresses responses. */
+  public static void configure(ServerBuilder<?> builder, OpenTelemetry openTelemetry) {
+    MessageCompression compression = fromProperties(openTelemetry.getMeter("com.opentelemetry.grpc.server"));
+    builder.compressorRegistry(compression.compressors).decompressorRegistry(compression.decompressors);
+    if (!compression.preferred.isEmpty()) {
+      builder.intercept(compression.new ServerCompression());
+      logger.info("Compressing responses of at least " + compression.minBytes + " bytes with "
+          + compression.preferred);
+    }
+  }
+
+  /** Installs the codecs on {@code builder} and, when enabled, compresses requests. */
+  public static void configure(ManagedChannelBuilder<?> builder, OpenTelemetry openTelemetry) {
+    MessageCompression compression = fromProperties(openTelemetry.getMeter("com.opentelemetry.grpc.client"));
+    builder.compressorRegistry(compression.compressors).decompressorRegistry(compression.decompressors);
+    if (!compression.preferred.isEmpty()) {
+      builder.intercept(compression.new ClientCompression());
+    }
+  }
+
+  private boolean worthCompressing(Object message) {
+    if (message instanceof MessageLite) {
+      // Generated messages memoize their size, so marshalling does not compute it again
+      return ((MessageLite) message).getSerializedSize() >= minBytes;
+    }
+    if (message instanceof byte[]) {
+      return ((byte[]) message).length >= minBytes;
+    }
+    return true;
+  }
+
+  private String negotiate(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return null;
+    }
+    List<String> accepted = List.of(acceptEncoding.split("\\s*,\\s*"));
+    for (String encoding : preferred) {
+      if (accepted.contains(encoding)) {
+        return encoding;
+      }
+    }
+    return null;
+  }
+
+  private static long cpuNanos() {
+    return THREAD_CPU_TIME ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+  }
+
+  private void record(Attributes attributes, long uncompressed, long compressed, long cpuNanos) {
+    uncompressedBytes.add(uncompressed, attributes);
+    compressedBytes.add(compressed, attributes);
+    if (compressed > 0) {
+      ratio.record((double) uncompressed / compressed, attributes);
+    }
+    cpuTime.record(cpuNanos / 1_000_000d, attributes);
+  }
+
+  private final class ServerCompression implements ServerInterceptor {
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+        ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+      String encoding = negotiate(headers.get(ACCEPT_ENCODING));
+      if (encoding == null) {
+        return next.startCall(call, headers);
+      }
+      call.setCompression(encoding);
+      return next.startCall(new ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT>(call) {
+        @Override
+        public void sendMessage(RespT message) {
+          setMessageCompression(worthCompressing(message));
+          super.sendMessage(message);
+        }
+      }, headers);
+    }
+  }
+
+  private final class ClientCompression implements ClientInterceptor {
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+        MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+      return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(
+          next.newCall(method, callOptions.withCompression(preferred.get(0)))) {
+        @Override
+        public void sendMessage(ReqT message) {
+          setMessageCompression(worthCompressing(message));
+          super.sendMessage(message);
+        }
+      };
+    }
+  }
+
+  /** Counts the bytes on both sides of a codec and the CPU time spent inside it. */
+  private final class MeteredCodec implements Codec {
+    private final Codec delegate;
+    private final Attributes compressAttributes;
+    private final Attributes decompressAttributes;
+
+    MeteredCodec(Codec delegate) {
+      this.delegate = delegate;
+      this.compressAttributes = Attributes.of(ENCODING, delegate.getMessageEncoding(), DIRECTION, "compress");
+      this.decompressAttributes = Attributes.of(ENCODING, delegate.getMessageEncoding(), DIRECTION, "decompress");
+    }
+
+    @Override
+    public String getMessageEncoding() {
+      return delegate.getMessageEncoding();
+    }
+
+    @Override
+    public OutputStream compress(OutputStream os) throws IOException {
+      CountingOutputStream wire = new CountingOutputStream(os);
+      long start = cpuNanos();
+      // gzip writes its header as soon as the stream is opened
+      OutputStream compressor = delegate.compress(wire);
+      return new TimedOutputStream(compressor, cpuNanos() - start) {
+        @Override
+        void closed() {
+          record(compressAttributes, count, wire.count, codecNanos);
+        }
+      };
+    }
+
+    @Override
+    public InputStream decompress(InputStream is) throws IOException {
+      CountingInputStream wire = new CountingInputStream(is);
+      long start = cpuNanos();
+      // gzip reads its header as soon as the stream is opened
+      InputStream decompressor = delegate.decompress(wire);
+      return new TimedInputStream(decompressor, cpuNanos() - start) {
+        @Override
+        void closed() {
+          record(decompressAttributes, count, wire.count, codecNanos);
+        }
+      };
+    }
+  }
+
+  /**
+   * Counts the bytes written to a compressor and adds up the thread CPU time spent inside its calls,
+   * so the serializer writing into the stream is not timed.
+   */
+  private abstract static class TimedOutputStream extends CountingOutputStream {
+    long codecNanos;
+    private boolean closed;
+
+    TimedOutputStream(OutputStream compressor, long openNanos) {
+      super(compressor);
+      this.codecNanos = openNanos;
+    }
+
+    /** Called once, after the compressor has been closed. */
+    abstract void closed();
+
+    @Override
+    public void write(int b) throws IOException {
+      long start = cpuNanos();
+      try {
+        super.write(b);
+      } finally {
+        codecNanos += cpuNanos() - start;
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      long start = cpuNanos();
+      try {
+        super.write(b, off, len);
+      } finally {
+        codecNanos += cpuNanos() - start;
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      long start = cpuNanos();
+      try {
+        out.flush();
+      } finally {
+        codecNanos += cpuNanos() - start;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      long start = cpuNanos();
+      try {
+        // The compressor finishes and flushes itself on close
+        out.close();
+      } finally {
+        codecNanos += cpuNanos() - start;
+      }
+      closed();
+    }
+  }
+
+  /**
+   * Counts the bytes read from a decompressor and adds up the thread CPU time spent inside its calls,
+   * so parsing the message is not timed. The message is usually parsed on another thread than the
+   * one that opened the stream; each call is timed on the thread that makes it.
+   */
+  private abstract static class TimedInputStream extends CountingInputStream {
+    long codecNanos;
+    private boolean closed;
+
+    TimedInputStream(InputStream decompressor, long openNanos) {
+      super(decompressor);
+      this.codecNanos = openNanos;
+    }
+
+    /** Called once, after the decompressor has been closed. */
+    abstract void closed();
+
+    @Override
+    public int read() throws IOException {
+      long start = cpuNanos();
+      try {
+        return super.read();
+      } finally {
+        codecNanos += cpuNanos() - start;
+      }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      long start = cpuNanos();
+      try {
+        return super.read(b, off, len);
+      } finally {
+        codecNanos += cpuNanos() - start;
+      }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long start = cpuNanos();
+      try {
+        return super.skip(n);
+      } finally {
+        codecNanos += cpuNanos() - start;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      super.close();
+      closed();
+    }
+  }
+
+  private static class CountingOutputStream extends FilterOutputStream {
+    long count;
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+  }
+
+  private static class CountingInputStream extends FilterInputStream {
+    long count;
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = in.read();
+      if (b >= 0) {
+        count++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = in.read(b, off, len);
+      if (n > 0) {
+        count += n;
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = in.skip(n);
+      count += skipped;
+      return skipped;
+    }
+  }
+}
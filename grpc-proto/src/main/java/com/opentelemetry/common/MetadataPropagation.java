@@ -0,0 +1,147 @@
+package com.opentelemetry.common;
+
+import io.grpc.Metadata;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanId;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceId;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.context.propagation.TextMapSetter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Carries the trace context in gRPC {@link Metadata}, shared by the client and server interceptors.
+ *
+ * Text propagation resolves header names to {@code Metadata.Key} instances created once, for the
+ * propagator's {@link TextMapPropagator#fields() fields}, and reads each header with a single
+ * lookup. Any other name a propagator asks for gets a key of its own that is not kept, and binary
+ * ({@code -bin}) headers are skipped, since they cannot be read as text.
+ *
+ * With {@code otel.propagation.binary=true} the client sends the span context as one
+ * {@code grpc-trace-bin} header instead: 29 bytes in the OpenCensus binary format, which skips hex
+ * encoding on both sides. The trace state and baggage are not carried in that mode. A server reads
+ * {@code grpc-trace-bin} only in the same mode, and then falls back to the text headers when it is
+ * absent, so clients in either mode can talk to it.
+ */
+public final class MetadataPropagation {
+  static final Metadata.Key<byte[]> TRACE_BIN = Metadata.Key.of("grpc-trace-bin", Metadata.BINARY_BYTE_MARSHALLER);
+
+  // Field ids and layout of the OpenCensus binary span context
+  private static final int BINARY_LENGTH = 29;
+  private static final int TRACE_ID_OFFSET = 2;
+  private static final int SPAN_ID_OFFSET = 19;
+  private static final int OPTIONS_OFFSET = 28;
+
+  private final TextMapPropagator propagator;
+  private final boolean binary;
+  private final Map<String, Metadata.Key<String>> keys;
+
+  private final TextMapGetter<Metadata> getter = new TextMapGetter<Metadata>() {
+    @Override
+    public Iterable<String> keys(Metadata carrier) {
+      return carrier.keys();
+    }
+
+    @Override
+    public String get(Metadata carrier, String key) {
+      Metadata.Key<String> metadataKey = key(key);
+      // null when absent, so there is no separate containsKey lookup
+      return carrier == null || metadataKey == null ? null : carrier.get(metadataKey);
+    }
+  };
+
+  private final TextMapSetter<Metadata> setter = (carrier, key, value) -> {
+    Metadata.Key<String> metadataKey = key(key);
+    if (carrier != null && metadataKey != null) {
+      carrier.put(metadataKey, value);
+    }
+  };
+
+  public MetadataPropagation(TextMapPropagator propagator, boolean binary) {
+    this.propagator = propagator;
+    this.binary = binary;
+    Map<String, Metadata.Key<String>> keys = new HashMap<>();
+    for (String name : propagator.fields()) {
+      if (!name.endsWith(Metadata.BINARY_HEADER_SUFFIX)) {
+        keys.put(name, Metadata.Key.of(name, Metadata.ASCII_STRING_MARSHALLER));
+      }
+    }
+    this.keys = Map.copyOf(keys);
+  }
+
+  public static MetadataPropagation create(OpenTelemetry openTelemetry) {
+    return new MetadataPropagation(openTelemetry.getPropagators().getTextMapPropagator(),
+        Boolean.getBoolean("otel.propagation.binary"));
+  }
+
+  /** The key of the text header {@code name}, or {@code null} for a binary header. */
+  private Metadata.Key<String> key(String name) {
+    Metadata.Key<String> key = keys.get(name);
+    if (key != null) {
+      return key;
+    }
+    return name.endsWith(Metadata.BINARY_HEADER_SUFFIX) ? null : Metadata.Key.of(name, Metadata.ASCII_STRING_MARSHALLER);
+  }
+
+  public void inject(Context context, Metadata headers) {
+    if (!binary) {
+      propagator.inject(context, headers, setter);
+      return;
+    }
+    SpanContext spanContext = Span.fromContext(context).getSpanContext();
+    if (spanContext.isValid()) {
+      headers.put(TRACE_BIN, toBinary(spanContext));
+    }
+  }
+
+  public Context extract(Context context, Metadata headers) {
+    if (binary) {
+      byte[] bytes = headers.get(TRACE_BIN);
+      if (bytes != null) {
+        SpanContext spanContext = fromBinary(bytes);
+        if (spanContext.isValid()) {
+          return context.with(Span.wrap(spanContext));
+        }
+      }
+    }
+    return propagator.extract(context, headers, getter);
+  }
+
+  static byte[] toBinary(SpanContext spanContext) {
+    byte[] bytes = new byte[BINARY_LENGTH];
+    bytes[TRACE_ID_OFFSET - 1] = 0;
+    System.arraycopy(spanContext.getTraceIdBytes(), 0, bytes, TRACE_ID_OFFSET, 16);
+    bytes[SPAN_ID_OFFSET - 1] = 1;
+    System.arraycopy(spanContext.getSpanIdBytes(), 0, bytes, SPAN_ID_OFFSET, 8);
+    bytes[OPTIONS_OFFSET - 1] = 2;
+    bytes[OPTIONS_OFFSET] = spanContext.getTraceFlags().asByte();
+    return bytes;
+  }
+
+  static SpanContext fromBinary(byte[] bytes) {
+    if (bytes.length < BINARY_LENGTH || bytes[0] != 0
+        || bytes[TRACE_ID_OFFSET - 1] != 0 || bytes[SPAN_ID_OFFSET - 1] != 1 || bytes[OPTIONS_OFFSET - 1] != 2) {
+      return SpanContext.getInvalid();
+    }
+    return SpanContext.createFromRemoteParent(
+        TraceId.fromLongs(readLong(bytes, TRACE_ID_OFFSET), readLong(bytes, TRACE_ID_OFFSET + 8)),
+        SpanId.fromLong(readLong(bytes, SPAN_ID_OFFSET)),
+        TraceFlags.fromByte(bytes[OPTIONS_OFFSET]),
+        TraceState.getDefault());
+  }
+
+  private static long readLong(byte[] bytes, int offset) {
+    long value = 0;
+    for (int i = 0; i < 8; i++) {
+      value = (value << 8) | (bytes[offset + i] & 0xff);
+    }
+    return value;
+  }
+}
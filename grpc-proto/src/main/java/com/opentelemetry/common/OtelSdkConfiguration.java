@@ -3,19 +3,34 @@ package com.opentelemetry.common;/*
  * SPDX-License-Identifier: Apache-2.0
  */
 
+import io.opentelemetry.api.GlobalOpenTelemetry;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.MeterProvider;
 import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
 import io.opentelemetry.context.propagation.ContextPropagators;
 import io.opentelemetry.exporter.jaeger.JaegerGrpcSpanExporter;
+import io.opentelemetry.exporter.logging.LoggingMetricExporter;
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.exporter.otlp.metrics.OtlpGrpcMetricExporter;
 import io.opentelemetry.exporter.otlp.trace.OtlpGrpcSpanExporter;
 import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.SdkMeterProviderBuilder;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
 import io.opentelemetry.sdk.resources.Resource;
 import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
 import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
 import io.opentelemetry.semconv.resource.attributes.ResourceAttributes;
 import io.opentelemetry.sdk.trace.export.SpanExporter;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -25,48 +40,193 @@ import java.util.concurrent.TimeUnit;
 public class OtelSdkConfiguration {
 
   /**
-   * Initializes the OpenTelemetry SDK with a logging span exporter and the W3C Trace Context
-   * propagator.
-   *
-   * @return A ready-to-use {@link OpenTelemetry} instance.
+   * The process-wide instance, built by {@link #initOpenTelemetry()} on first use and registered as
+   * {@link GlobalOpenTelemetry}. When the Java agent has already registered its SDK, that one is
+   * returned and ours is shut down.
    */
-  public static OpenTelemetry initOpenTelemetry() {
-
-      // Export traces to Jaeger over OTLP (To be used if using OTEL collector)
-      OtlpGrpcSpanExporter jaegerOtlpExporter =
-              OtlpGrpcSpanExporter.builder()
-                      .setEndpoint("http://localhost:4317")
-                      .setTimeout(30, TimeUnit.SECONDS)
-                      .build();
+  public static OpenTelemetry openTelemetry() {
+    return Shared.INSTANCE;
+  }
 
-      JaegerGrpcSpanExporter jaegerExporter =
-            JaegerGrpcSpanExporter.builder()
-                    .setEndpoint("http://localhost:14250")
-                    .build();
+  private static final class Shared {
+    static final OpenTelemetry INSTANCE = register(initOpenTelemetry());
 
-      Resource serviceNameResource =
-              Resource.create(Attributes.of(ResourceAttributes.SERVICE_NAME, "otel-jaeger-grpc"));
+    private static OpenTelemetry register(OpenTelemetrySdk sdk) {
+      try {
+        GlobalOpenTelemetry.set(sdk);
+        return sdk;
+      } catch (IllegalStateException e) {
+        sdk.getSdkTracerProvider().shutdown();
+        sdk.getSdkMeterProvider().shutdown();
+        return GlobalOpenTelemetry.get();
+      }
+    }
+  }
 
+  /**
+   * Initializes the OpenTelemetry SDK with the span exporter and span processor selected through
+   * system properties, and the W3C Trace Context propagator.
+   *
+   * <ul>
+   *   <li>{@code otel.traces.exporter}: {@code jaeger} (default), {@code otlp}, {@code logging} or
+   *       {@code none}
+   *   <li>{@code otel.span.processor}: {@code batch} (default) or {@code simple}, which exports
+   *       synchronously on the thread that ends the span
+   *   <li>{@code otel.bsp.max.queue.size}, {@code otel.bsp.max.export.batch.size},
+   *       {@code otel.bsp.schedule.delay} and {@code otel.bsp.export.timeout} (milliseconds) tune
+   *       the batch processor
+   *   <li>{@code otel.traces.sampler.ratio}: fraction of new traces to record (default 1.0); child
+   *       spans always follow their parent's decision
+   *   <li>{@code otel.traces.sampler.methods}: per-method ratios overriding the default, e.g.
+   *       {@code common.BookStore/first=0.01,common.Greeter/greet=0.5}
+   *   <li>{@code otel.traces.sampler.max.per.second}: caps the number of new traces per second
+   *   <li>{@code otel.tracing.enabled}: {@code false} samples out every span and tells the tracing
+   *       interceptors to stay out of the call path altogether
+   * </ul>
+   *
+   * The returned instance also carries a meter provider, see {@link #createMeterProvider}. Metrics
+   * do not depend on {@code otel.tracing.enabled}.
+   *
+   * @return A ready-to-use {@link OpenTelemetry} instance.
+   */
+  public static OpenTelemetrySdk initOpenTelemetry() {
+    Resource serviceNameResource =
+            Resource.create(Attributes.of(ResourceAttributes.SERVICE_NAME, "otel-jaeger-grpc"));
+    Resource resource = Resource.getDefault().merge(serviceNameResource);
+    SdkMeterProvider sdkMeterProvider = createMeterProvider(resource);
 
-      SdkTracerProvider sdkTracerProvider =
+    SdkTracerProvider sdkTracerProvider;
+    if (isTracingEnabled()) {
+      SpanExporter spanExporter = createSpanExporter(System.getProperty("otel.traces.exporter", "jaeger"));
+      sdkTracerProvider =
         SdkTracerProvider.builder()
             // The customSpanProcessor allows us to inject and extract baggage information into span attributes
 //            .addSpanProcessor(CustomSpanProcessor.create(jaegerExporter))
 //            .addSpanProcessor(SimpleSpanProcessor.create(LoggingSpanExporter.create()))
-            .addSpanProcessor(SimpleSpanProcessor.create(jaegerExporter))
-            .setResource(Resource.getDefault().merge(serviceNameResource))
+            .addSpanProcessor(createSpanProcessor(spanExporter, sdkMeterProvider))
+            .setSampler(createSampler())
+            .setResource(resource)
+            .build();
+    } else {
+      // No exporter and no recorded spans; the meter provider above still exports
+      sdkTracerProvider = SdkTracerProvider.builder()
+            .setSampler(Sampler.alwaysOff())
+            .setResource(resource)
             .build();
+    }
 
 
     // sdk propagator to propagate both the context and baggage
     OpenTelemetrySdk sdk =
         OpenTelemetrySdk.builder()
             .setTracerProvider(sdkTracerProvider)
+            .setMeterProvider(sdkMeterProvider)
             .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
 //            .setPropagators(ContextPropagators.create(W3CBaggagePropagator.getInstance()))
             .build();
 
     Runtime.getRuntime().addShutdownHook(new Thread(sdkTracerProvider::close));
+    Runtime.getRuntime().addShutdownHook(new Thread(sdkMeterProvider::close));
     return sdk;
   }
+
+  /**
+   * Metrics are exported every {@code otel.metric.export.interval} milliseconds (default 60000)
+   * through the exporter named by {@code otel.metrics.exporter}: {@code logging} (default),
+   * {@code otlp} or {@code none}.
+   */
+  static SdkMeterProvider createMeterProvider(Resource resource) {
+    SdkMeterProviderBuilder builder = SdkMeterProvider.builder().setResource(resource);
+    String exporter = System.getProperty("otel.metrics.exporter", "logging");
+    MetricExporter metricExporter;
+    switch (exporter) {
+      case "logging":
+        metricExporter = LoggingMetricExporter.create();
+        break;
+      case "otlp":
+        metricExporter = OtlpGrpcMetricExporter.builder()
+            .setEndpoint("http://localhost:4317")
+            .build();
+        break;
+      case "none":
+        return builder.build();
+      default:
+        throw new IllegalArgumentException("Unknown otel.metrics.exporter: " + exporter);
+    }
+    return builder
+        .registerMetricReader(PeriodicMetricReader.builder(metricExporter)
+            .setInterval(Duration.ofMillis(Long.getLong("otel.metric.export.interval", 60000)))
+            .build())
+        .build();
+  }
+
+  /** Whether the tracing interceptors should be installed at all. */
+  public static boolean isTracingEnabled() {
+    return !"false".equalsIgnoreCase(System.getProperty("otel.tracing.enabled"));
+  }
+
+  static Sampler createSampler() {
+    Sampler root = Sampler.traceIdRatioBased(
+        Double.parseDouble(System.getProperty("otel.traces.sampler.ratio", "1.0")));
+    String methods = System.getProperty("otel.traces.sampler.methods", "");
+    if (!methods.isEmpty()) {
+      Map<String, Double> ratios = new HashMap<>();
+      for (String entry : methods.split(",")) {
+        int equals = entry.indexOf('=');
+        if (equals < 0) {
+          throw new IllegalArgumentException("Expected <service>/<method>=<ratio>: " + entry);
+        }
+        ratios.put(entry.substring(0, equals).trim(), Double.parseDouble(entry.substring(equals + 1).trim()));
+      }
+      root = new PerMethodSampler(ratios, root);
+    }
+    String maxPerSecond = System.getProperty("otel.traces.sampler.max.per.second");
+    if (maxPerSecond != null) {
+      root = new RateLimitingSampler(root, Double.parseDouble(maxPerSecond));
+    }
+    return Sampler.parentBased(root);
+  }
+
+  static SpanExporter createSpanExporter(String name) {
+    switch (name) {
+      case "otlp":
+        // Export traces to Jaeger over OTLP (To be used if using OTEL collector)
+        return OtlpGrpcSpanExporter.builder()
+            .setEndpoint("http://localhost:4317")
+            .setTimeout(30, TimeUnit.SECONDS)
+            .build();
+      case "logging":
+        return LoggingSpanExporter.create();
+      case "none":
+        return SpanExporter.composite();
+      case "jaeger":
+        return JaegerGrpcSpanExporter.builder()
+            .setEndpoint("http://localhost:14250")
+            .build();
+      default:
+        throw new IllegalArgumentException("Unknown otel.traces.exporter: " + name);
+    }
+  }
+
+  /**
+   * The SDK's batch processor drops spans once its queue is full rather than blocking the thread
+   * that ends them, and reports {@code processedSpans} (with {@code dropped=true} for the spans it
+   * lost) and {@code queueSize} through {@code meterProvider}.
+   */
+  static SpanProcessor createSpanProcessor(SpanExporter spanExporter, MeterProvider meterProvider) {
+    String processor = System.getProperty("otel.span.processor", "batch");
+    if ("simple".equals(processor)) {
+      return SimpleSpanProcessor.create(spanExporter);
+    }
+    if (!"batch".equals(processor)) {
+      throw new IllegalArgumentException("Unknown otel.span.processor: " + processor);
+    }
+    return BatchSpanProcessor.builder(spanExporter)
+        .setMaxQueueSize(Integer.getInteger("otel.bsp.max.queue.size", 2048))
+        .setMaxExportBatchSize(Integer.getInteger("otel.bsp.max.export.batch.size", 512))
+        .setScheduleDelay(Long.getLong("otel.bsp.schedule.delay", 5000), TimeUnit.MILLISECONDS)
+        .setExporterTimeout(Long.getLong("otel.bsp.export.timeout", 30000), TimeUnit.MILLISECONDS)
+        .setMeterProvider(meterProvider)
+        .build();
+  }
 }
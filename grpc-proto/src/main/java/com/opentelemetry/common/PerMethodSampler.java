@@ -0,0 +1,66 @@
+package com.opentelemetry.common;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+import io.opentelemetry.semconv.trace.attributes.SemanticAttributes;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Samples each gRPC method at its own ratio.
+ *
+ * The method is taken from the {@code rpc.service} and {@code rpc.method} attributes given to the
+ * span builder, so instrumentation must set them before {@code startSpan()}. Spans for methods
+ * without a configured ratio, or without those attributes, fall back to the default sampler.
+ */
+public final class PerMethodSampler implements Sampler {
+  // service -> method -> sampler, looked up without building a full method name per span
+  private final Map<String, Map<String, Sampler>> samplers = new HashMap<>();
+  private final Sampler defaultSampler;
+
+  /**
+   * @param ratios sampling ratio per full method name, e.g. {@code common.BookStore/first}
+   */
+  public PerMethodSampler(Map<String, Double> ratios, Sampler defaultSampler) {
+    this.defaultSampler = defaultSampler;
+    ratios.forEach((fullMethodName, ratio) -> {
+      int slash = fullMethodName.lastIndexOf('/');
+      if (slash <= 0 || slash == fullMethodName.length() - 1) {
+        throw new IllegalArgumentException("Expected <service>/<method>: " + fullMethodName);
+      }
+      samplers.computeIfAbsent(fullMethodName.substring(0, slash), k -> new HashMap<>())
+          .put(fullMethodName.substring(slash + 1), Sampler.traceIdRatioBased(ratio));
+    });
+  }
+
+  @Override
+  public SamplingResult shouldSample(Context parentContext, String traceId, String name,
+      SpanKind spanKind, Attributes attributes, List<LinkData> parentLinks) {
+    return samplerFor(attributes)
+        .shouldSample(parentContext, traceId, name, spanKind, attributes, parentLinks);
+  }
+
+  private Sampler samplerFor(Attributes attributes) {
+    String service = attributes.get(SemanticAttributes.RPC_SERVICE);
+    if (service == null) {
+      return defaultSampler;
+    }
+    Map<String, Sampler> methods = samplers.get(service);
+    if (methods == null) {
+      return defaultSampler;
+    }
+    Sampler sampler = methods.get(attributes.get(SemanticAttributes.RPC_METHOD));
+    return sampler == null ? defaultSampler : sampler;
+  }
+
+  @Override
+  public String getDescription() {
+    return "PerMethodSampler{methods=" + samplers + ", default=" + defaultSampler.getDescription() + "}";
+  }
+}
@@ -0,0 +1,65 @@
+package com.opentelemetry.common;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+
+import java.util.List;
+
+/**
+ * Caps how many traces per second another sampler may start.
+ *
+ * Every span the delegate decides to record spends one token from a bucket refilled at
+ * {@code maxTracesPerSecond}; once the bucket is empty spans are dropped until it refills. The
+ * bucket holds at most one second's worth of tokens (and at least one), which bounds bursts.
+ */
+public final class RateLimitingSampler implements Sampler {
+  private final Sampler delegate;
+  private final double maxTracesPerSecond;
+  private final double tokensPerNano;
+  private final double maxTokens;
+  private double tokens;
+  private long lastRefill = System.nanoTime();
+
+  public RateLimitingSampler(Sampler delegate, double maxTracesPerSecond) {
+    if (maxTracesPerSecond <= 0) {
+      throw new IllegalArgumentException("maxTracesPerSecond must be positive");
+    }
+    this.delegate = delegate;
+    this.maxTracesPerSecond = maxTracesPerSecond;
+    this.tokensPerNano = maxTracesPerSecond / 1_000_000_000d;
+    this.maxTokens = Math.max(1, maxTracesPerSecond);
+    this.tokens = maxTokens;
+  }
+
+  @Override
+  public SamplingResult shouldSample(Context parentContext, String traceId, String name,
+      SpanKind spanKind, Attributes attributes, List<LinkData> parentLinks) {
+    SamplingResult result =
+        delegate.shouldSample(parentContext, traceId, name, spanKind, attributes, parentLinks);
+    if (result.getDecision() == SamplingDecision.DROP || tryAcquire()) {
+      return result;
+    }
+    return SamplingResult.drop();
+  }
+
+  private synchronized boolean tryAcquire() {
+    long now = System.nanoTime();
+    tokens = Math.min(maxTokens, tokens + (now - lastRefill) * tokensPerNano);
+    lastRefill = now;
+    if (tokens < 1) {
+      return false;
+    }
+    tokens -= 1;
+    return true;
+  }
+
+  @Override
+  public String getDescription() {
+    return "RateLimitingSampler{" + maxTracesPerSecond + "/s, " + delegate.getDescription() + "}";
+  }
+}
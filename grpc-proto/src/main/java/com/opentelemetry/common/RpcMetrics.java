@@ -0,0 +1,81 @@
+package com.opentelemetry.common;
+
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.semconv.trace.attributes.SemanticAttributes;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-method request, error and latency metrics for one side of a gRPC call.
+ *
+ * Every finished call records {@code <prefix>.duration} (milliseconds) and
+ * {@code <prefix>.requests}, and calls that did not end OK also count towards
+ * {@code <prefix>.errors}, where the prefix is {@code rpc.server} or {@code rpc.client}. All three
+ * carry the service, method and gRPC status code, and the attribute sets are cached per method and
+ * status so recording does not allocate once a method has been seen.
+ */
+public final class RpcMetrics {
+  private static final int STATUS_CODES = Status.Code.values().length;
+
+  private final DoubleHistogram duration;
+  private final LongCounter requests;
+  private final LongCounter errors;
+  private final ConcurrentMap<String, Attributes[]> attributesByMethod = new ConcurrentHashMap<>();
+
+  private RpcMetrics(Meter meter, String prefix) {
+    this.duration = meter.histogramBuilder(prefix + ".duration")
+        .setDescription("Duration of gRPC calls")
+        .setUnit("ms")
+        .build();
+    this.requests = meter.counterBuilder(prefix + ".requests")
+        .setDescription("Finished gRPC calls")
+        .setUnit("{request}")
+        .build();
+    this.errors = meter.counterBuilder(prefix + ".errors")
+        .setDescription("gRPC calls that finished with a status other than OK")
+        .setUnit("{request}")
+        .build();
+  }
+
+  public static RpcMetrics forServer(OpenTelemetry openTelemetry) {
+    return new RpcMetrics(openTelemetry.getMeter("com.opentelemetry.grpc.server"), "rpc.server");
+  }
+
+  public static RpcMetrics forClient(OpenTelemetry openTelemetry) {
+    return new RpcMetrics(openTelemetry.getMeter("com.opentelemetry.grpc.client"), "rpc.client");
+  }
+
+  public void record(MethodDescriptor<?, ?> method, Status.Code code, long elapsedNanos) {
+    Attributes attributes = attributes(method, code);
+    duration.record(elapsedNanos / 1_000_000d, attributes);
+    requests.add(1, attributes);
+    if (code != Status.Code.OK) {
+      errors.add(1, attributes);
+    }
+  }
+
+  private Attributes attributes(MethodDescriptor<?, ?> method, Status.Code code) {
+    Attributes[] byCode = attributesByMethod.get(method.getFullMethodName());
+    if (byCode == null) {
+      byCode = attributesByMethod.computeIfAbsent(method.getFullMethodName(), k -> new Attributes[STATUS_CODES]);
+    }
+    Attributes attributes = byCode[code.ordinal()];
+    if (attributes == null) {
+      // Racing threads build equal instances, so the unsynchronized write is harmless
+      attributes = Attributes.of(
+          SemanticAttributes.RPC_SYSTEM, "grpc",
+          SemanticAttributes.RPC_SERVICE, method.getServiceName(),
+          SemanticAttributes.RPC_METHOD, MethodDescriptor.extractBareMethodName(method.getFullMethodName()),
+          SemanticAttributes.RPC_GRPC_STATUS_CODE, (long) code.value());
+      byCode[code.ordinal()] = attributes;
+    }
+    return attributes;
+  }
+}
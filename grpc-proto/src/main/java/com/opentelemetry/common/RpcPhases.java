@@ -0,0 +1,409 @@
+package com.opentelemetry.common;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ClientStreamTracer;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerStreamTracer;
+import io.grpc.Status;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongHistogram;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.semconv.trace.attributes.SemanticAttributes;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits every call into phases with gRPC stream tracers, on servers and on channels.
+ *
+ * <ul>
+ *   <li>Server {@code headers}: from the stream being created, once its request headers are
+ *       decoded, to the call's context being built from them on the transport thread, just before
+ *       the hand-off to the call executor.
+ *   <li>Server {@code queue}: from there to the call starting on the call executor, which covers
+ *       the method lookup and the wait for an executor thread.
+ *   <li>Server {@code handler}: from there to the first response message, which covers parsing the
+ *       request, the interceptors and the handler itself.
+ *   <li>Server {@code serialize}: serializing and framing the response messages, summed.
+ *   <li>Server {@code send}: from the last response message to the stream closing.
+ *   <li>Client {@code pick}: from the call being created to its stream, which covers name
+ *       resolution, connecting and load balancing. Only first attempts record it.
+ *   <li>Client {@code serialize}: serializing and framing the request messages, summed.
+ *   <li>Client {@code wait}: from the last request message to the response headers, that is the
+ *       network and the server.
+ *   <li>Client {@code receive}: from the response headers to the stream closing.
+ * </ul>
+ *
+ * Each phase records the {@code rpc.server.phase.duration} or {@code rpc.client.phase.duration}
+ * histogram (milliseconds) by service, method and {@code phase}. Every message also records
+ * {@code rpc.server.request.size} and {@code rpc.server.response.size}, or their client
+ * counterparts, in uncompressed bytes. Phase boundaries and messages are added as events to the
+ * call's span when it is recording: on the client the span current when the call is created, on
+ * the server the span passed to {@link #attach(Span)}. A server without a tracing interceptor never
+ * attaches one, so its calls build no events at all. The tracers are off unless
+ * {@code grpc.phase.tracing=true}.
+ */
+public final class RpcPhases {
+  private static final io.grpc.Context.Key<ServerPhases> SERVER_PHASES = io.grpc.Context.key("rpc-phases");
+  private static final AttributeKey<String> PHASE = AttributeKey.stringKey("phase");
+  private static final AttributeKey<String> MESSAGE_TYPE = AttributeKey.stringKey("message.type");
+  private static final AttributeKey<Long> MESSAGE_ID = AttributeKey.longKey("message.id");
+  private static final AttributeKey<Long> COMPRESSED_SIZE = AttributeKey.longKey("message.compressed_size");
+  private static final AttributeKey<Long> UNCOMPRESSED_SIZE = AttributeKey.longKey("message.uncompressed_size");
+  private static final AttributeKey<Long> ATTEMPT = AttributeKey.longKey("rpc.attempt");
+  // Streams can be long, so only their first messages become span events
+  private static final int MAX_MESSAGE_EVENTS = 16;
+
+  // Headers comes last, so that serialize keeps the index it shares with the client
+  private static final String[] SERVER_PHASES = {"queue", "handler", "serialize", "send", "headers"};
+  private static final int QUEUE = 0;
+  private static final int HANDLER = 1;
+  private static final int SEND = 3;
+  private static final int HEADERS = 4;
+  private static final String[] CLIENT_PHASES = {"pick", "serialize", "wait", "receive"};
+  private static final int PICK = 0;
+  private static final int WAIT = 2;
+  private static final int RECEIVE = 3;
+  // The same index on both sides
+  private static final int SERIALIZE = 1;
+
+  private final String[] phases;
+  private final DoubleHistogram phaseDuration;
+  private final LongHistogram requestSize;
+  private final LongHistogram responseSize;
+  // Per method: one attribute set per phase, then the plain method attributes
+  private final ConcurrentMap<String, Attributes[]> attributesByMethod = new ConcurrentHashMap<>();
+
+  private RpcPhases(Meter meter, String prefix, String[] phases) {
+    this.phases = phases;
+    this.phaseDuration = meter.histogramBuilder(prefix + ".phase.duration")
+        .setDescription("Time spent in one phase of a gRPC call")
+        .setUnit("ms")
+        .build();
+    this.requestSize = meter.histogramBuilder(prefix + ".request.size").ofLongs()
+        .setDescription("Uncompressed size of request messages")
+        .setUnit("By")
+        .build();
+    this.responseSize = meter.histogramBuilder(prefix + ".response.size").ofLongs()
+        .setDescription("Uncompressed size of response messages")
+        .setUnit("By")
+        .build();
+  }
+
+  private static boolean enabled() {
+    return Boolean.getBoolean("grpc.phase.tracing");
+  }
+
+  /** Traces the phases of every call served by {@code builder}. */
+  public static void configure(ServerBuilder<?> builder, OpenTelemetry openTelemetry) {
+    if (enabled()) {
+      RpcPhases phases = new RpcPhases(openTelemetry.getMeter("com.opentelemetry.grpc.server"), "rpc.server", SERVER_PHASES);
+      builder.addStreamTracerFactory(new ServerStreamTracer.Factory() {
+        @Override
+        public ServerStreamTracer newServerStreamTracer(String fullMethodName, Metadata headers) {
+          return phases.new ServerPhases(fullMethodName);
+        }
+      });
+    }
+  }
+
+  /** Traces the phases of every call made on the channel built by {@code builder}. */
+  public static void configure(ManagedChannelBuilder<?> builder, OpenTelemetry openTelemetry) {
+    if (enabled()) {
+      RpcPhases phases = new RpcPhases(openTelemetry.getMeter("com.opentelemetry.grpc.client"), "rpc.client", CLIENT_PHASES);
+      builder.intercept(phases.new ClientPhasesInterceptor());
+    }
+  }
+
+  /**
+   * Adds the phase events of the server call being handled to {@code span} from now on, along with
+   * the stream creation and call start already past. Call it from an interceptor once the call's
+   * span exists; an unsampled span is ignored.
+   */
+  public static void attach(Span span) {
+    ServerPhases phases = SERVER_PHASES.get();
+    if (phases != null && span.isRecording()) {
+      phases.attach(span);
+    }
+  }
+
+  private Attributes[] attributes(String fullMethodName) {
+    Attributes[] attributes = attributesByMethod.get(fullMethodName);
+    if (attributes == null) {
+      attributes = attributesByMethod.computeIfAbsent(fullMethodName, name -> {
+        Attributes method = Attributes.of(
+            SemanticAttributes.RPC_SYSTEM, "grpc",
+            SemanticAttributes.RPC_SERVICE, MethodDescriptor.extractFullServiceName(name),
+            SemanticAttributes.RPC_METHOD, MethodDescriptor.extractBareMethodName(name));
+        Attributes[] byPhase = new Attributes[phases.length + 1];
+        for (int i = 0; i < phases.length; i++) {
+          byPhase[i] = method.toBuilder().put(PHASE, phases[i]).build();
+        }
+        byPhase[phases.length] = method;
+        return byPhase;
+      });
+    }
+    return attributes;
+  }
+
+  private void recordPhase(Attributes[] attributes, int phase, long nanos) {
+    phaseDuration.record(nanos / 1_000_000d, attributes[phase]);
+  }
+
+  private static void recordSize(LongHistogram histogram, Attributes[] attributes, long wireSize, long uncompressedSize) {
+    long size = uncompressedSize >= 0 ? uncompressedSize : wireSize;
+    if (size >= 0) {
+      histogram.record(size, attributes[attributes.length - 1]);
+    }
+  }
+
+  private static Attributes message(String type, int seqNo, long wireSize, long uncompressedSize) {
+    return Attributes.of(MESSAGE_TYPE, type, MESSAGE_ID, (long) seqNo + 1,
+        COMPRESSED_SIZE, wireSize, UNCOMPRESSED_SIZE, uncompressedSize);
+  }
+
+  /**
+   * The span events of one call, only created for a recording span. Timestamps are taken with
+   * {@link System#nanoTime()} and mapped to the wall clock read once when this is created.
+   */
+  private static final class Events {
+    private final long anchorNanos = System.nanoTime();
+    private final long anchorEpochNanos;
+    private final Span span;
+
+    Events(Span span) {
+      Instant now = Instant.now();
+      this.anchorEpochNanos = TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano();
+      this.span = span;
+    }
+
+    /** Whether the span still records; building event attributes is wasted otherwise. */
+    boolean wanted() {
+      return span.isRecording();
+    }
+
+    void add(String name, Attributes attributes, long nanos) {
+      span.addEvent(name, attributes, anchorEpochNanos + (nanos - anchorNanos), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private final class ServerPhases extends ServerStreamTracer {
+    private final Attributes[] attributes;
+    private final long createdNanos = System.nanoTime();
+    private volatile long contextNanos;
+    private volatile boolean contextBuilt;
+    // Set once a recording span is attached
+    private volatile Events events;
+    private volatile long startedNanos;
+    private volatile boolean started;
+    // Written by the thread sending responses, read when the stream closes
+    private volatile boolean sent;
+    private volatile long firstSentNanos;
+    private volatile long lastSentNanos;
+    private volatile long serializeNanos;
+    private long messageNanos;
+    private int inboundEvents;
+    private int outboundEvents;
+
+    ServerPhases(String fullMethodName) {
+      this.attributes = attributes(fullMethodName);
+    }
+
+    @Override
+    public io.grpc.Context filterContext(io.grpc.Context context) {
+      // Called once, on the transport thread, before the call moves to its executor
+      contextNanos = System.nanoTime();
+      contextBuilt = true;
+      return context.withValue(SERVER_PHASES, this);
+    }
+
+    // The interceptors, and so the attach, run after the call has started
+    void attach(Span span) {
+      if (events != null) {
+        return;
+      }
+      Events attached = new Events(span);
+      attached.add("grpc.stream_created", Attributes.empty(), createdNanos);
+      attached.add("grpc.headers_processed", Attributes.empty(), contextNanos);
+      if (started) {
+        attached.add("grpc.call_started", Attributes.empty(), startedNanos);
+      }
+      events = attached;
+    }
+
+    @Override
+    public void serverCallStarted(ServerCallInfo<?, ?> callInfo) {
+      startedNanos = System.nanoTime();
+      started = true;
+    }
+
+    @Override
+    public void inboundMessageRead(int seqNo, long optionalWireSize, long optionalUncompressedSize) {
+      recordSize(requestSize, attributes, optionalWireSize, optionalUncompressedSize);
+      Events events = this.events;
+      if (events != null && inboundEvents++ < MAX_MESSAGE_EVENTS && events.wanted()) {
+        events.add("message", message("RECEIVED", seqNo, optionalWireSize, optionalUncompressedSize), System.nanoTime());
+      }
+    }
+
+    @Override
+    public void outboundMessage(int seqNo) {
+      messageNanos = System.nanoTime();
+      if (!sent) {
+        firstSentNanos = messageNanos;
+      }
+    }
+
+    @Override
+    public void outboundMessageSent(int seqNo, long optionalWireSize, long optionalUncompressedSize) {
+      long now = System.nanoTime();
+      serializeNanos += now - messageNanos;
+      lastSentNanos = now;
+      sent = true;
+      recordSize(responseSize, attributes, optionalWireSize, optionalUncompressedSize);
+      Events events = this.events;
+      if (events != null && outboundEvents++ < MAX_MESSAGE_EVENTS && events.wanted()) {
+        events.add("message", message("SENT", seqNo, optionalWireSize, optionalUncompressedSize), now);
+      }
+    }
+
+    @Override
+    public void streamClosed(Status status) {
+      long closedNanos = System.nanoTime();
+      if (!contextBuilt) {
+        recordPhase(attributes, HEADERS, closedNanos - createdNanos);
+        return;
+      }
+      recordPhase(attributes, HEADERS, contextNanos - createdNanos);
+      if (!started) {
+        recordPhase(attributes, QUEUE, closedNanos - contextNanos);
+        return;
+      }
+      recordPhase(attributes, QUEUE, startedNanos - contextNanos);
+      recordPhase(attributes, HANDLER, (sent ? firstSentNanos : closedNanos) - startedNanos);
+      if (sent) {
+        recordPhase(attributes, SERIALIZE, serializeNanos);
+        recordPhase(attributes, SEND, closedNanos - lastSentNanos);
+      }
+    }
+  }
+
+  private final class ClientPhasesInterceptor implements ClientInterceptor {
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+        MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+      long createdNanos = System.nanoTime();
+      // Without a recording span there is nothing to add events to
+      Span span = Span.current().isRecording() ? Span.current() : null;
+      Attributes[] attributes = attributes(method.getFullMethodName());
+      return next.newCall(method, callOptions.withStreamTracerFactory(new ClientStreamTracer.Factory() {
+        @Override
+        public ClientStreamTracer newClientStreamTracer(ClientStreamTracer.StreamInfo info, Metadata headers) {
+          return new ClientPhases(attributes, span, createdNanos, info.getPreviousAttempts());
+        }
+      }));
+    }
+  }
+
+  /** One attempt of a client call; retries get a tracer each. */
+  private final class ClientPhases extends ClientStreamTracer {
+    private final Attributes[] attributes;
+    // null when the call has no recording span
+    private final Events events;
+    private final Attributes attempt;
+    private volatile boolean sent;
+    private volatile long lastSentNanos;
+    private volatile long serializeNanos;
+    private volatile boolean headersReceived;
+    private volatile long headersNanos;
+    private long messageNanos;
+    private int inboundEvents;
+    private int outboundEvents;
+
+    ClientPhases(Attributes[] attributes, Span span, long callCreatedNanos, int previousAttempts) {
+      this.attributes = attributes;
+      this.events = span == null ? null : new Events(span);
+      this.attempt = events == null ? null : Attributes.of(ATTEMPT, (long) previousAttempts + 1);
+      long streamNanos = System.nanoTime();
+      if (previousAttempts == 0) {
+        recordPhase(attributes, PICK, streamNanos - callCreatedNanos);
+      }
+      if (wanted()) {
+        events.add("grpc.stream_created", attempt, streamNanos);
+      }
+    }
+
+    private boolean wanted() {
+      return events != null && events.wanted();
+    }
+
+    @Override
+    public void outboundHeaders() {
+      if (wanted()) {
+        events.add("grpc.headers_sent", attempt, System.nanoTime());
+      }
+    }
+
+    @Override
+    public void outboundMessage(int seqNo) {
+      messageNanos = System.nanoTime();
+    }
+
+    @Override
+    public void outboundMessageSent(int seqNo, long optionalWireSize, long optionalUncompressedSize) {
+      long now = System.nanoTime();
+      serializeNanos += now - messageNanos;
+      lastSentNanos = now;
+      sent = true;
+      recordSize(requestSize, attributes, optionalWireSize, optionalUncompressedSize);
+      if (outboundEvents++ < MAX_MESSAGE_EVENTS && wanted()) {
+        events.add("message", message("SENT", seqNo, optionalWireSize, optionalUncompressedSize), now);
+      }
+    }
+
+    @Override
+    public void inboundHeaders() {
+      headersNanos = System.nanoTime();
+      headersReceived = true;
+      if (wanted()) {
+        events.add("grpc.headers_received", attempt, headersNanos);
+      }
+    }
+
+    @Override
+    public void inboundMessageRead(int seqNo, long optionalWireSize, long optionalUncompressedSize) {
+      recordSize(responseSize, attributes, optionalWireSize, optionalUncompressedSize);
+      if (inboundEvents++ < MAX_MESSAGE_EVENTS && wanted()) {
+        events.add("message", message("RECEIVED", seqNo, optionalWireSize, optionalUncompressedSize), System.nanoTime());
+      }
+    }
+
+    @Override
+    public void streamClosed(Status status) {
+      long closedNanos = System.nanoTime();
+      if (sent) {
+        recordPhase(attributes, SERIALIZE, serializeNanos);
+        recordPhase(attributes, WAIT, (headersReceived ? headersNanos : closedNanos) - lastSentNanos);
+      }
+      if (headersReceived) {
+        recordPhase(attributes, RECEIVE, closedNanos - headersNanos);
+      }
+      if (wanted()) {
+        events.add("grpc.stream_closed", attempt.toBuilder()
+            .put(SemanticAttributes.RPC_GRPC_STATUS_CODE, (long) status.getCode().value()).build(), closedNanos);
+      }
+    }
+  }
+}
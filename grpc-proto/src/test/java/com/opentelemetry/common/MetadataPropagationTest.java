@@ -0,0 +1,125 @@
+package com.opentelemetry.common;
+
+import io.grpc.Metadata;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.context.propagation.TextMapSetter;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetadataPropagationTest {
+  private static final Metadata.Key<String> TRACEPARENT =
+      Metadata.Key.of("traceparent", Metadata.ASCII_STRING_MARSHALLER);
+  private static final SpanContext SPAN_CONTEXT = SpanContext.create(
+      "0af7651916cd43dd8448eb211c80319c", "b7ad6b7169203331", TraceFlags.getSampled(),
+      TraceState.builder().put("vendor", "value").build());
+
+  private final MetadataPropagation text = new MetadataPropagation(W3CTraceContextPropagator.getInstance(), false);
+  private final MetadataPropagation binary = new MetadataPropagation(W3CTraceContextPropagator.getInstance(), true);
+
+  private static Metadata inject(MetadataPropagation propagation) {
+    Metadata headers = new Metadata();
+    propagation.inject(Context.root().with(Span.wrap(SPAN_CONTEXT)), headers);
+    return headers;
+  }
+
+  private static SpanContext extract(MetadataPropagation propagation, Metadata headers) {
+    return Span.fromContext(propagation.extract(Context.root(), headers)).getSpanContext();
+  }
+
+  @Test
+  void textRoundTrip() {
+    Metadata headers = inject(text);
+
+    assertTrue(headers.containsKey(TRACEPARENT));
+    assertFalse(headers.containsKey(MetadataPropagation.TRACE_BIN));
+    SpanContext extracted = extract(text, headers);
+    assertEquals(SPAN_CONTEXT.getTraceId(), extracted.getTraceId());
+    assertEquals(SPAN_CONTEXT.getSpanId(), extracted.getSpanId());
+    assertEquals(SPAN_CONTEXT.getTraceFlags(), extracted.getTraceFlags());
+    assertEquals("value", extracted.getTraceState().get("vendor"));
+    assertTrue(extracted.isRemote());
+  }
+
+  @Test
+  void binaryRoundTrip() {
+    Metadata headers = inject(binary);
+
+    assertFalse(headers.containsKey(TRACEPARENT));
+    assertEquals(29, headers.get(MetadataPropagation.TRACE_BIN).length);
+    SpanContext extracted = extract(binary, headers);
+    assertEquals(SPAN_CONTEXT.getTraceId(), extracted.getTraceId());
+    assertEquals(SPAN_CONTEXT.getSpanId(), extracted.getSpanId());
+    assertEquals(SPAN_CONTEXT.getTraceFlags(), extracted.getTraceFlags());
+    // The binary format does not carry the trace state
+    assertTrue(extracted.getTraceState().isEmpty());
+    assertTrue(extracted.isRemote());
+  }
+
+  @Test
+  void binaryServerAcceptsTextClient() {
+    assertEquals(SPAN_CONTEXT.getSpanId(), extract(binary, inject(text)).getSpanId());
+  }
+
+  @Test
+  void textServerIgnoresBinaryHeader() {
+    assertFalse(extract(text, inject(binary)).isValid());
+  }
+
+  @Test
+  void malformedBinaryContextIsInvalid() {
+    byte[] bytes = MetadataPropagation.toBinary(SPAN_CONTEXT);
+    assertArrayEquals(bytes, MetadataPropagation.toBinary(MetadataPropagation.fromBinary(bytes)));
+
+    assertFalse(MetadataPropagation.fromBinary(new byte[28]).isValid());
+    bytes[0] = 1;
+    assertFalse(MetadataPropagation.fromBinary(bytes).isValid());
+  }
+
+  @Test
+  void binaryFieldNamesAreSkipped() {
+    ContextKey<String> seen = ContextKey.named("seen");
+    TextMapPropagator propagator = new TextMapPropagator() {
+      @Override
+      public Collection<String> fields() {
+        return List.of("x-custom", "x-custom-bin");
+      }
+
+      @Override
+      public <C> void inject(Context context, C carrier, TextMapSetter<C> setter) {
+        setter.set(carrier, "x-custom", "text");
+        setter.set(carrier, "x-custom-bin", "binary");
+        setter.set(carrier, "x-other", "other");
+      }
+
+      @Override
+      public <C> Context extract(Context context, C carrier, TextMapGetter<C> getter) {
+        return context.with(seen, getter.get(carrier, "x-custom") + "," + getter.get(carrier, "x-custom-bin")
+            + "," + getter.get(carrier, "x-other"));
+      }
+    };
+    MetadataPropagation propagation = new MetadataPropagation(propagator, false);
+
+    Metadata headers = new Metadata();
+    propagation.inject(Context.root(), headers);
+
+    assertEquals("text", headers.get(Metadata.Key.of("x-custom", Metadata.ASCII_STRING_MARSHALLER)));
+    assertNull(headers.get(Metadata.Key.of("x-custom-bin", Metadata.BINARY_BYTE_MARSHALLER)));
+    assertEquals("text,null,other", propagation.extract(Context.root(), headers).get(seen));
+  }
+}
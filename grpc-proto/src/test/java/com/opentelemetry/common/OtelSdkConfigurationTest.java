@@ -0,0 +1,129 @@
+package com.opentelemetry.common;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.testing.exporter.InMemoryMetricReader;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OtelSdkConfigurationTest {
+  private static final String[] PROPERTIES = {"otel.span.processor", "otel.bsp.max.queue.size",
+      "otel.bsp.max.export.batch.size", "otel.bsp.schedule.delay"};
+
+  @AfterEach
+  void clearProperties() {
+    for (String property : PROPERTIES) {
+      System.clearProperty(property);
+    }
+  }
+
+  @Test
+  void batchProcessorDropsSpansOnceTheQueueIsFull() throws InterruptedException {
+    System.setProperty("otel.bsp.max.queue.size", "2");
+    System.setProperty("otel.bsp.max.export.batch.size", "1");
+    System.setProperty("otel.bsp.schedule.delay", "1");
+    BlockingExporter exporter = new BlockingExporter();
+    InMemoryMetricReader metrics = InMemoryMetricReader.create();
+    SdkMeterProvider meterProvider = SdkMeterProvider.builder().registerMetricReader(metrics).build();
+    SpanProcessor processor = OtelSdkConfiguration.createSpanProcessor(exporter, meterProvider);
+    SdkTracerProvider tracerProvider = SdkTracerProvider.builder().addSpanProcessor(processor).build();
+    Tracer tracer = tracerProvider.get("test");
+    try {
+      tracer.spanBuilder("first").startSpan().end();
+      // The worker is now stuck exporting the first span, so only the queue is left
+      assertTrue(exporter.exporting.await(5, TimeUnit.SECONDS));
+      for (int i = 0; i < 10; i++) {
+        tracer.spanBuilder("queued or dropped").startSpan().end();
+      }
+      exporter.release.countDown();
+      assertTrue(processor.forceFlush().join(5, TimeUnit.SECONDS).isSuccess());
+
+      assertEquals(3, exporter.exported.get());
+      assertEquals(8, droppedSpans(metrics));
+    } finally {
+      exporter.release.countDown();
+      tracerProvider.shutdown().join(5, TimeUnit.SECONDS);
+      meterProvider.shutdown().join(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  void simpleProcessorIsSelectable() {
+    System.setProperty("otel.span.processor", "simple");
+
+    assertInstanceOf(SimpleSpanProcessor.class,
+        OtelSdkConfiguration.createSpanProcessor(new BlockingExporter(), SdkMeterProvider.builder().build()));
+  }
+
+  @Test
+  void unknownProcessorIsRejected() {
+    System.setProperty("otel.span.processor", "custom");
+
+    assertThrows(IllegalArgumentException.class,
+        () -> OtelSdkConfiguration.createSpanProcessor(new BlockingExporter(), SdkMeterProvider.builder().build()));
+  }
+
+  private static long droppedSpans(InMemoryMetricReader metrics) {
+    long dropped = 0;
+    for (MetricData metric : metrics.collectAllMetrics()) {
+      if (!"processedSpans".equals(metric.getName())) {
+        continue;
+      }
+      for (LongPointData point : metric.getLongSumData().getPoints()) {
+        if (Boolean.TRUE.equals(point.getAttributes().get(AttributeKey.booleanKey("dropped")))) {
+          dropped += point.getValue();
+        }
+      }
+    }
+    return dropped;
+  }
+
+  /** Holds the first export until released, counting the spans it was given. */
+  private static final class BlockingExporter implements SpanExporter {
+    final CountDownLatch exporting = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger exported = new AtomicInteger();
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+      exporting.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return CompletableResultCode.ofFailure();
+      }
+      exported.addAndGet(spans.size());
+      return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+      return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+      return CompletableResultCode.ofSuccess();
+    }
+  }
+}
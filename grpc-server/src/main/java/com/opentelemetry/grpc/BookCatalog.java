@@ -0,0 +1,264 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.proto.Book;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The binary catalog format that backs {@link BookIndex}.
+ *
+ * A catalog is one buffer of big-endian ints and byte blobs. The header holds the magic
+ * {@code BKC1}, the format version, the book count and the position of each section:
+ *
+ * <ul>
+ *   <li>title offsets and title bytes: the UTF-8 titles in unsigned byte order, which fixes the
+ *       book ids.
+ *   <li>record offsets and record bytes: each {@link Book} in protobuf encoding, by id.
+ *   <li>prices: the price of each book, by id.
+ *   <li>price order and sorted prices: the ids ordered by (price, id), with the prices alongside.
+ *   <li>author and genre dictionaries: a key count {@code k}, {@code k + 1} key offsets,
+ *       {@code k + 1} posting starts, the ascending id postings, then the UTF-8 keys in unsigned
+ *       byte order.
+ * </ul>
+ *
+ * Everything a search touches can be read in place, so a catalog file is memory-mapped instead of
+ * loaded. Opening it costs the same at any size, a {@link Book} is decoded only when it is
+ * returned, and server processes on one host share the mapping through the page cache. Offsets are
+ * ints, so a catalog is limited to 2 GiB.
+ */
+final class BookCatalog {
+    static final int MAGIC = 0x424B4331;
+    static final int VERSION = 1;
+
+    // Header slots, one int each
+    static final int COUNT = 8;
+    static final int TITLE_OFFSETS = 12;
+    static final int TITLE_BYTES = 16;
+    static final int RECORD_OFFSETS = 20;
+    static final int RECORD_BYTES = 24;
+    static final int PRICES = 28;
+    static final int PRICE_ORDER = 32;
+    static final int SORTED_PRICES = 36;
+    static final int AUTHORS = 40;
+    static final int GENRES = 44;
+    private static final int HEADER_SIZE = 48;
+
+    private BookCatalog() {
+    }
+
+    /** The five books the example servers start with when no catalog file is configured. */
+    static List<Book> sample() {
+        return List.of(
+                Book.newBuilder().setName("Great Gatsby")
+                        .setAuthor("Scott Fitzgerald")
+                        .setPrice(300)
+                        .setGenre("Tragedy").build(),
+                Book.newBuilder().setName("To Kill MockingBird")
+                        .setAuthor("Harper Lee")
+                        .setPrice(400)
+                        .setGenre("Southern Gothic").build(),
+                Book.newBuilder().setName("Passage to India")
+                        .setAuthor("E.M.Forster")
+                        .setPrice(500)
+                        .setGenre("Historical Fiction").build(),
+                Book.newBuilder().setName("The Side of Paradise")
+                        .setAuthor("Scott Fitzgerald")
+                        .setPrice(600)
+                        .setGenre("Novel").build(),
+                Book.newBuilder().setName("Go Set a Watchman")
+                        .setAuthor("Harper Lee")
+                        .setPrice(700)
+                        .setGenre("Southern Gothic").build());
+    }
+
+    /** Maps {@code file} read-only. The mapping stays valid after the channel is closed. */
+    static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a book catalog: " + file);
+            }
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+                throw new IOException("Not a version " + VERSION + " book catalog: " + file);
+            }
+            // The record bytes come last, so a truncated file is caught before it is searched
+            long recordEnd = (long) data.getInt(RECORD_OFFSETS) + 4L * data.getInt(COUNT);
+            if (recordEnd + 4 > data.capacity()
+                    || (long) data.getInt(RECORD_BYTES) + data.getInt((int) recordEnd) != data.capacity()) {
+                throw new IOException("Truncated book catalog: " + file);
+            }
+            return data;
+        }
+    }
+
+    /** Encodes {@code books} into a heap buffer in catalog format. */
+    static ByteBuffer encode(Collection<Book> books) {
+        int n = books.size();
+        byte[][] titleKeys = new byte[n][];
+        Book[] sorted = books.toArray(new Book[0]);
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            titleKeys[i] = utf8(sorted[i].getName());
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(titleKeys[a], titleKeys[b]));
+
+        byte[][] titles = new byte[n][];
+        byte[][] records = new byte[n][];
+        int[] prices = new int[n];
+        Map<String, IntList> authors = new HashMap<>();
+        Map<String, IntList> genres = new HashMap<>();
+        long[] pricedIds = new long[n];
+        for (int id = 0; id < n; id++) {
+            Book book = sorted[order[id]];
+            titles[id] = titleKeys[order[id]];
+            records[id] = book.toByteArray();
+            prices[id] = book.getPrice();
+            authors.computeIfAbsent(book.getAuthor(), k -> new IntList()).add(id);
+            genres.computeIfAbsent(book.getGenre(), k -> new IntList()).add(id);
+            pricedIds[id] = ((long) book.getPrice() << 32) | id;
+        }
+        Arrays.sort(pricedIds);
+
+        Dictionary authorDictionary = new Dictionary(authors);
+        Dictionary genreDictionary = new Dictionary(genres);
+        long titleBytes = totalLength(titles);
+        long recordBytes = totalLength(records);
+        long size = HEADER_SIZE + 4L * (n + 1) * 2 + 4L * n * 3
+                + authorDictionary.size() + genreDictionary.size() + titleBytes + recordBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Catalog of " + n + " books exceeds 2 GiB");
+        }
+
+        ByteBuffer data = ByteBuffer.allocate((int) size);
+        data.position(HEADER_SIZE);
+        data.putInt(TITLE_OFFSETS, data.position());
+        putOffsets(data, titles);
+        data.putInt(RECORD_OFFSETS, data.position());
+        putOffsets(data, records);
+        data.putInt(PRICES, data.position());
+        for (int price : prices) {
+            data.putInt(price);
+        }
+        data.putInt(PRICE_ORDER, data.position());
+        for (long pricedId : pricedIds) {
+            data.putInt((int) pricedId);
+        }
+        data.putInt(SORTED_PRICES, data.position());
+        for (long pricedId : pricedIds) {
+            data.putInt((int) (pricedId >> 32));
+        }
+        data.putInt(AUTHORS, data.position());
+        authorDictionary.put(data);
+        data.putInt(GENRES, data.position());
+        genreDictionary.put(data);
+        data.putInt(TITLE_BYTES, data.position());
+        for (byte[] title : titles) {
+            data.put(title);
+        }
+        data.putInt(RECORD_BYTES, data.position());
+        for (byte[] record : records) {
+            data.put(record);
+        }
+        data.putInt(0, MAGIC);
+        data.putInt(4, VERSION);
+        data.putInt(COUNT, n);
+        return data.clear();
+    }
+
+    static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putOffsets(ByteBuffer data, byte[][] values) {
+        int offset = 0;
+        data.putInt(offset);
+        for (byte[] value : values) {
+            offset += value.length;
+            data.putInt(offset);
+        }
+    }
+
+    private static long totalLength(byte[][] values) {
+        long total = 0;
+        for (byte[] value : values) {
+            total += value.length;
+        }
+        return total;
+    }
+
+    private static final class Dictionary {
+        private final byte[][] keys;
+        private final int[][] postings;
+
+        Dictionary(Map<String, IntList> lists) {
+            List<byte[]> sortedKeys = new ArrayList<>(lists.size());
+            Map<ByteBuffer, int[]> byKey = new HashMap<>(lists.size() * 2);
+            lists.forEach((key, ids) -> {
+                byte[] bytes = utf8(key);
+                sortedKeys.add(bytes);
+                byKey.put(ByteBuffer.wrap(bytes), ids.toArray());
+            });
+            sortedKeys.sort(Arrays::compareUnsigned);
+            this.keys = sortedKeys.toArray(new byte[0][]);
+            this.postings = new int[keys.length][];
+            for (int i = 0; i < keys.length; i++) {
+                postings[i] = byKey.get(ByteBuffer.wrap(keys[i]));
+            }
+        }
+
+        long size() {
+            long ids = 0;
+            for (int[] list : postings) {
+                ids += list.length;
+            }
+            return 4 + 4L * (keys.length + 1) * 2 + 4 * ids + totalLength(keys);
+        }
+
+        void put(ByteBuffer data) {
+            data.putInt(keys.length);
+            putOffsets(data, keys);
+            int start = 0;
+            data.putInt(start);
+            for (int[] list : postings) {
+                start += list.length;
+                data.putInt(start);
+            }
+            for (int[] list : postings) {
+                for (int id : list) {
+                    data.putInt(id);
+                }
+            }
+            for (byte[] key : keys) {
+                data.put(key);
+            }
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
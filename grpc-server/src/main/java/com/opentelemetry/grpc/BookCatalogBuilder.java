@@ -0,0 +1,78 @@
+package com.opentelemetry.grpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opentelemetry.proto.Book;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Offline tool that compiles a JSON-lines book list into a {@link BookCatalog} file for the
+ * servers' {@code bookstore.catalog} property.
+ *
+ * Each input line is one object with {@code name}, {@code author}, {@code price} and
+ * {@code genre}. Without an input file the sample catalog is written. The output is written to a
+ * temporary file and then moved into place, so a server never maps a half-written catalog.
+ */
+public class BookCatalogBuilder {
+    private static final Logger logger = Logger.getLogger(BookCatalogBuilder.class.getName());
+
+    static List<Book> readBooks(Path input) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<Book> books = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(input)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode book = mapper.readTree(line);
+                books.add(Book.newBuilder()
+                        .setName(book.path("name").asText())
+                        .setAuthor(book.path("author").asText())
+                        .setPrice(book.path("price").asInt())
+                        .setGenre(book.path("genre").asText())
+                        .build());
+            }
+        }
+        return books;
+    }
+
+    static void write(List<Book> books, Path output) throws IOException {
+        ByteBuffer catalog = BookCatalog.encode(books);
+        Path absolute = output.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (catalog.hasRemaining()) {
+                    channel.write(catalog);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: BookCatalogBuilder <output catalog> [books.jsonl]");
+            System.exit(1);
+        }
+        Path output = Path.of(args[0]);
+        List<Book> books = args.length == 2 ? readBooks(Path.of(args[1])) : BookCatalog.sample();
+        write(books, output);
+        logger.info("Wrote " + books.size() + " books to " + output + " (" + Files.size(output) + " bytes)");
+    }
+}
@@ -0,0 +1,407 @@
+package com.opentelemetry.grpc;
+
+import com.google.protobuf.CodedInputStream;
+import com.opentelemetry.proto.Book;
+import com.opentelemetry.proto.BookSearch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable, title-ordered index over a book catalog in {@link BookCatalog} format.
+ *
+ * Books are stored in title order and identified by their position, so every title sharing a
+ * prefix sits in one contiguous id range found by binary search over the encoded titles. Author and
+ * genre are indexed as inverted lists of ascending ids, and price as a list of ids sorted by price.
+ * A {@link BookSearch} is compiled into a {@link Query} that intersects whichever of these the
+ * search constrains. All of them are read in place from the catalog buffer, and a {@link Book} is
+ * only decoded when a query returns it, so an index over a memory-mapped file costs little heap
+ * whatever its size.
+ */
+final class BookIndex {
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+
+    private final long generation = GENERATIONS.incrementAndGet();
+    private final ByteBuffer data;
+    private final int size;
+    private final int titleOffsets;
+    private final int titleBytes;
+    private final int recordOffsets;
+    private final int recordBytes;
+    // Price of each book, by id, used to filter candidates produced by the other indexes
+    private final int prices;
+    // Ids ordered by (price, id), with the matching prices alongside for binary search
+    private final int priceOrder;
+    private final int sortedPrices;
+    private final int authors;
+    private final int genres;
+    private volatile FuzzyIndex fuzzy;
+
+    private BookIndex(ByteBuffer data) {
+        this.data = data;
+        this.size = data.getInt(BookCatalog.COUNT);
+        this.titleOffsets = data.getInt(BookCatalog.TITLE_OFFSETS);
+        this.titleBytes = data.getInt(BookCatalog.TITLE_BYTES);
+        this.recordOffsets = data.getInt(BookCatalog.RECORD_OFFSETS);
+        this.recordBytes = data.getInt(BookCatalog.RECORD_BYTES);
+        this.prices = data.getInt(BookCatalog.PRICES);
+        this.priceOrder = data.getInt(BookCatalog.PRICE_ORDER);
+        this.sortedPrices = data.getInt(BookCatalog.SORTED_PRICES);
+        this.authors = data.getInt(BookCatalog.AUTHORS);
+        this.genres = data.getInt(BookCatalog.GENRES);
+    }
+
+    /** Indexes {@code catalog} in a heap buffer. */
+    static BookIndex of(Collection<Book> catalog) {
+        return new BookIndex(BookCatalog.encode(catalog));
+    }
+
+    /** Memory-maps the catalog file written by {@link BookCatalogBuilder}. */
+    static BookIndex open(Path file) throws IOException {
+        return new BookIndex(BookCatalog.map(file));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Increases with every index created, so a later catalog version has a higher generation. */
+    long generation() {
+        return generation;
+    }
+
+    Book book(int id) {
+        int from = recordBytes + data.getInt(recordOffsets + 4 * id);
+        int to = recordBytes + data.getInt(recordOffsets + 4 * id + 4);
+        try {
+            return Book.parseFrom(CodedInputStream.newInstance(data.duplicate().limit(to).position(from)));
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt catalog record for book " + id, e);
+        }
+    }
+
+    String title(int id) {
+        return string(titleBytes + data.getInt(titleOffsets + 4 * id),
+                titleBytes + data.getInt(titleOffsets + 4 * id + 4));
+    }
+
+    /** Number of distinct authors, addressed as keys 0 to {@code authorCount() - 1}. */
+    int authorCount() {
+        return data.getInt(authors);
+    }
+
+    String author(int key) {
+        int keyOffsets = authors + 4;
+        int keyBytes = authorKeyBytes();
+        return string(keyBytes + data.getInt(keyOffsets + 4 * key), keyBytes + data.getInt(keyOffsets + 4 * key + 4));
+    }
+
+    /** @return the ids of at most {@code limit} books by author {@code key}, in title order. */
+    int[] booksByAuthor(int key, int limit) {
+        int postingStarts = authors + 4 + 4 * (authorCount() + 1);
+        int ids = postingStarts + 4 * (authorCount() + 1);
+        int from = data.getInt(postingStarts + 4 * key);
+        int count = Math.min(limit, data.getInt(postingStarts + 4 * key + 4) - from);
+        int[] books = new int[count];
+        for (int i = 0; i < count; i++) {
+            books[i] = data.getInt(ids + 4 * (from + i));
+        }
+        return books;
+    }
+
+    private int authorKeyBytes() {
+        int postingStarts = authors + 4 + 4 * (authorCount() + 1);
+        int ids = postingStarts + 4 * (authorCount() + 1);
+        return ids + 4 * data.getInt(postingStarts + 4 * authorCount());
+    }
+
+    private String string(int from, int to) {
+        byte[] bytes = new byte[to - from];
+        data.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The trigram index over titles and authors for {@link FuzzyIndex#search}, built from this
+     * catalog on first use and kept for as long as the snapshot is.
+     */
+    FuzzyIndex fuzzy() {
+        FuzzyIndex built = fuzzy;
+        if (built == null) {
+            synchronized (this) {
+                built = fuzzy;
+                if (built == null) {
+                    built = FuzzyIndex.build(this);
+                    fuzzy = built;
+                }
+            }
+        }
+        return built;
+    }
+
+    boolean hasFuzzy() {
+        return fuzzy != null;
+    }
+
+    /**
+     * @return the first book matching {@code search}, or {@code null} when there is none. Results
+     * are in title order unless the search only constrains price, in which case they are in price
+     * order.
+     */
+    Book first(BookSearch search) {
+        Query query = query(search);
+        int position = query.next(0);
+        return position < 0 ? null : query.book(position);
+    }
+
+    Query query(BookSearch search) {
+        byte[] prefix = BookCatalog.utf8(search.getName().trim());
+        String author = search.getAuthor().trim();
+        String genre = search.getGenre().trim();
+        int minPrice = search.hasMinPrice() ? search.getMinPrice().getValue() : Integer.MIN_VALUE;
+        int maxPrice = search.hasMaxPrice() ? search.getMaxPrice().getValue() : Integer.MAX_VALUE;
+
+        if (prefix.length == 0 && author.isEmpty() && genre.isEmpty()
+                && (search.hasMinPrice() || search.hasMaxPrice())) {
+            return new Query(this, -1, -1, -1, -1, priceStart(minPrice), priceEnd(maxPrice),
+                    Integer.MIN_VALUE, Integer.MAX_VALUE, true);
+        }
+        int from = prefixStart(prefix);
+        int to = prefixEnd(prefix, from);
+        // Postings are addressed as [start, end) byte ranges of the buffer; -1 means unconstrained
+        long byAuthor = author.isEmpty() ? -1 : postings(authors, BookCatalog.utf8(author));
+        long byGenre = genre.isEmpty() ? -1 : postings(genres, BookCatalog.utf8(genre));
+        // Drive the intersection from the shorter list
+        if (byAuthor == -1 || (byGenre != -1 && length(byGenre) < length(byAuthor))) {
+            long swap = byAuthor;
+            byAuthor = byGenre;
+            byGenre = swap;
+        }
+        return new Query(this, start(byAuthor), end(byAuthor), start(byGenre), end(byGenre), from, to,
+                minPrice, maxPrice, false);
+    }
+
+    /** Lower bound: the first id whose title is not less than {@code prefix}. */
+    private int prefixStart(byte[] prefix) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareTitle(mid, prefix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** The first id at or after {@code from} whose title does not start with {@code prefix}. */
+    private int prefixEnd(byte[] prefix, int from) {
+        int lo = from;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (titleStartsWith(mid, prefix)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Compares the encoded title of {@code id} with {@code key} as unsigned bytes. */
+    private int compareTitle(int id, byte[] key) {
+        int from = titleBytes + data.getInt(titleOffsets + 4 * id);
+        int to = titleBytes + data.getInt(titleOffsets + 4 * id + 4);
+        return compare(from, to, key);
+    }
+
+    private boolean titleStartsWith(int id, byte[] prefix) {
+        int from = titleBytes + data.getInt(titleOffsets + 4 * id);
+        int to = titleBytes + data.getInt(titleOffsets + 4 * id + 4);
+        if (to - from < prefix.length) {
+            return false;
+        }
+        return compare(from, from + prefix.length, prefix) == 0;
+    }
+
+    private int compare(int from, int to, byte[] key) {
+        int length = Math.min(to - from, key.length);
+        for (int i = 0; i < length; i++) {
+            int diff = Byte.toUnsignedInt(data.get(from + i)) - Byte.toUnsignedInt(key[i]);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return (to - from) - key.length;
+    }
+
+    /**
+     * Finds {@code key} in the dictionary at {@code dictionary}.
+     *
+     * @return the byte range of its postings packed as {@code start << 32 | end}, which is empty
+     * when the key is absent
+     */
+    private long postings(int dictionary, byte[] key) {
+        int keys = data.getInt(dictionary);
+        int keyOffsets = dictionary + 4;
+        int postingStarts = keyOffsets + 4 * (keys + 1);
+        int ids = postingStarts + 4 * (keys + 1);
+        int keyBytes = ids + 4 * data.getInt(postingStarts + 4 * keys);
+        int lo = 0;
+        int hi = keys;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(keyBytes + data.getInt(keyOffsets + 4 * mid),
+                    keyBytes + data.getInt(keyOffsets + 4 * mid + 4), key);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid;
+            } else {
+                long start = ids + 4L * data.getInt(postingStarts + 4 * mid);
+                long end = ids + 4L * data.getInt(postingStarts + 4 * mid + 4);
+                return start << 32 | end;
+            }
+        }
+        return (long) ids << 32 | ids;
+    }
+
+    private static int start(long range) {
+        return range == -1 ? -1 : (int) (range >>> 32);
+    }
+
+    private static int end(long range) {
+        return range == -1 ? -1 : (int) range;
+    }
+
+    private static int length(long range) {
+        return end(range) - start(range);
+    }
+
+    /** The first position in price order whose price is at least {@code minPrice}. */
+    private int priceStart(int minPrice) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (data.getInt(sortedPrices + 4 * mid) < minPrice) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** The first position in price order whose price is above {@code maxPrice}. */
+    private int priceEnd(int maxPrice) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (data.getInt(sortedPrices + 4 * mid) <= maxPrice) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * The smallest id at least {@code id} in the ascending postings stored in bytes
+     * [{@code from}, {@code to}), or -1.
+     */
+    private int ceiling(int from, int to, int id) {
+        int lo = 0;
+        int hi = (to - from) / 4;
+        int count = hi;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (data.getInt(from + 4 * mid) < id) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo < count ? data.getInt(from + 4 * lo) : -1;
+    }
+
+    /**
+     * A compiled search. Matches are addressed by position: a book id for title-ordered queries, or
+     * an index into the price order for price-only queries. Positions only grow, so a caller can
+     * resume a scan from any position it has seen.
+     */
+    static final class Query {
+        private final BookIndex index;
+        // Byte ranges of the posting lists to intersect, or -1 when unconstrained
+        private final int firstStart;
+        private final int firstEnd;
+        private final int secondStart;
+        private final int secondEnd;
+        private final int from;
+        private final int to;
+        private final int minPrice;
+        private final int maxPrice;
+        private final boolean byPrice;
+
+        private Query(BookIndex index, int firstStart, int firstEnd, int secondStart, int secondEnd,
+                      int from, int to, int minPrice, int maxPrice, boolean byPrice) {
+            this.index = index;
+            this.firstStart = firstStart;
+            this.firstEnd = firstEnd;
+            this.secondStart = secondStart;
+            this.secondEnd = secondEnd;
+            this.from = from;
+            this.to = to;
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+            this.byPrice = byPrice;
+        }
+
+        /** @return the first matching position at or after {@code position}, or -1. */
+        int next(int position) {
+            int id = Math.max(position, from);
+            if (byPrice) {
+                return id < to ? id : -1;
+            }
+            while (id < to) {
+                int candidate = id;
+                if (firstStart >= 0) {
+                    candidate = index.ceiling(firstStart, firstEnd, candidate);
+                    if (candidate < 0) {
+                        return -1;
+                    }
+                }
+                if (secondStart >= 0) {
+                    candidate = index.ceiling(secondStart, secondEnd, candidate);
+                    if (candidate < 0) {
+                        return -1;
+                    }
+                }
+                if (candidate != id) {
+                    // One of the lists skipped ahead; re-check the others from there
+                    id = candidate;
+                    continue;
+                }
+                int price = index.data.getInt(index.prices + 4 * id);
+                if (price >= minPrice && price <= maxPrice) {
+                    return id;
+                }
+                id++;
+            }
+            return -1;
+        }
+
+        Book book(int position) {
+            return index.book(byPrice ? index.data.getInt(index.priceOrder + 4 * position) : position);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.proto.BookSearch;
+import io.opentelemetry.api.metrics.Meter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of serialized {@code first} responses, keyed by the normalized {@link BookSearch}.
+ *
+ * Eviction is segmented LRU. New entries enter a probation segment and move to a protected segment
+ * on their second hit. Entries pushed out of the protected segment fall back to probation, and
+ * only probation entries are evicted. A burst of one-off queries therefore cannot flush the hot
+ * titles. The key space is split into independently locked shards so that concurrent lookups
+ * rarely contend.
+ *
+ * Every entry remembers the {@link BookIndex} it was computed from and only answers lookups against
+ * that same index. The first lookup against a newer {@link BookIndex#generation() generation}
+ * clears the cache, and it only ever moves forward, whether a lookup or a store sees the newer
+ * generation first. Calls still holding an older catalog during a reload miss and store nothing,
+ * so they cannot flush the entries of the new one.
+ */
+final class BookResponseCache {
+    private static final int SHARDS = 16;
+
+    private final Shard[] shards;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile BookIndex currentIndex;
+
+    BookResponseCache(int maximumSize) {
+        this(maximumSize, SHARDS);
+    }
+
+    /** @param shardCount a power of two */
+    BookResponseCache(int maximumSize, int shardCount) {
+        int perShard = Math.max(1, maximumSize / shardCount);
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(perShard);
+        }
+    }
+
+    /** Strips the whitespace {@link BookIndex} ignores, so equivalent searches share an entry. */
+    static BookSearch normalize(BookSearch search) {
+        String name = search.getName();
+        String author = search.getAuthor();
+        String genre = search.getGenre();
+        if (name.equals(name.trim()) && author.equals(author.trim()) && genre.equals(genre.trim())) {
+            return search;
+        }
+        return search.toBuilder()
+                .setName(name.trim())
+                .setAuthor(author.trim())
+                .setGenre(genre.trim())
+                .build();
+    }
+
+    /** @return the cached response for {@code key} computed from {@code index}, or {@code null}. */
+    byte[] get(BookIndex index, BookSearch key) {
+        BookIndex current = currentIndex;
+        if (index != current) {
+            if (current != null && index.generation() < current.generation()) {
+                misses.increment();
+                return null;
+            }
+            advance(index);
+        }
+        byte[] payload = shard(key).get(index, key);
+        if (payload == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return payload;
+    }
+
+    void put(BookIndex index, BookSearch key, byte[] payload) {
+        BookIndex current = currentIndex;
+        if (index != current) {
+            // Responses from a catalog that has since been replaced would never be read
+            if (current != null && index.generation() < current.generation()) {
+                return;
+            }
+            advance(index);
+        }
+        evictions.add(shard(key).put(index, key, payload));
+    }
+
+    private synchronized void advance(BookIndex index) {
+        BookIndex current = currentIndex;
+        if (current != null && index.generation() <= current.generation()) {
+            return;
+        }
+        for (Shard shard : shards) {
+            shard.clear();
+        }
+        currentIndex = index;
+    }
+
+    private Shard shard(BookSearch key) {
+        int h = key.hashCode();
+        return shards[(h ^ (h >>> 16)) & (shards.length - 1)];
+    }
+
+    long hitCount() {
+        return hits.sum();
+    }
+
+    long missCount() {
+        return misses.sum();
+    }
+
+    long evictionCount() {
+        return evictions.sum();
+    }
+
+    void registerMetrics(Meter meter) {
+        meter.counterBuilder("bookstore.cache.hits").setUnit("{request}")
+                .setDescription("first calls answered from the response cache")
+                .buildWithCallback(measurement -> measurement.record(hitCount()));
+        meter.counterBuilder("bookstore.cache.misses").setUnit("{request}")
+                .setDescription("first calls that had to search the index")
+                .buildWithCallback(measurement -> measurement.record(missCount()));
+        meter.counterBuilder("bookstore.cache.evictions").setUnit("{entry}")
+                .setDescription("Responses evicted to keep the cache within its size bound")
+                .buildWithCallback(measurement -> measurement.record(evictionCount()));
+    }
+
+    private static final class Entry {
+        final BookIndex index;
+        final byte[] payload;
+
+        Entry(BookIndex index, byte[] payload) {
+            this.index = index;
+            this.payload = payload;
+        }
+    }
+
+    private final class Shard {
+        private final int protectedCapacity;
+        private final int probationCapacity;
+        // Both maps are in access order, so iteration starts at the least recently used entry
+        private final LinkedHashMap<BookSearch, Entry> probation = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<BookSearch, Entry> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+        Shard(int capacity) {
+            this.protectedCapacity = capacity * 4 / 5;
+            this.probationCapacity = Math.max(1, capacity - protectedCapacity);
+        }
+
+        synchronized byte[] get(BookIndex index, BookSearch key) {
+            Entry entry = protectedSegment.get(key);
+            if (entry == null) {
+                entry = probation.remove(key);
+                if (entry == null || entry.index != index) {
+                    return null;
+                }
+                promote(key, entry);
+            }
+            return entry.index == index ? entry.payload : null;
+        }
+
+        /** @return the number of entries evicted to make room */
+        synchronized int put(BookIndex index, BookSearch key, byte[] payload) {
+            Entry entry = new Entry(index, payload);
+            if (protectedSegment.containsKey(key)) {
+                protectedSegment.put(key, entry);
+                return 0;
+            }
+            probation.put(key, entry);
+            return trimProbation();
+        }
+
+        synchronized void clear() {
+            probation.clear();
+            protectedSegment.clear();
+        }
+
+        private void promote(BookSearch key, Entry entry) {
+            protectedSegment.put(key, entry);
+            if (protectedSegment.size() > protectedCapacity) {
+                Iterator<Map.Entry<BookSearch, Entry>> eldest = protectedSegment.entrySet().iterator();
+                Map.Entry<BookSearch, Entry> demoted = eldest.next();
+                eldest.remove();
+                probation.put(demoted.getKey(), demoted.getValue());
+                evictions.add(trimProbation());
+            }
+        }
+
+        private int trimProbation() {
+            int evicted = 0;
+            Iterator<Map.Entry<BookSearch, Entry>> eldest = probation.entrySet().iterator();
+            while (probation.size() > probationCapacity && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evicted++;
+            }
+            return evicted;
+        }
+    }
+}
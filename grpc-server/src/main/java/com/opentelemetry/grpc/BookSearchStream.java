@@ -0,0 +1,98 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.proto.BookMatch;
+import com.opentelemetry.proto.BookSearchAll;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Streams every match of a {@link BookSearchAll} request while honouring gRPC flow control.
+ *
+ * Matches are produced lazily from a {@link BookIndex.Query} and only written while the call
+ * reports {@link ServerCallStreamObserver#isReady()}. When the transport buffer fills up the stream
+ * simply returns, and resumes from the same position on the next onReady callback, so a slow
+ * consumer holds back the server rather than making it buffer the whole result set.
+ *
+ * A stream reads one catalog snapshot from start to finish. A page token is a position in that
+ * snapshot, so a page requested after a catalog reload resumes at the same position in the new
+ * version.
+ *
+ * A cancelled call, including one whose deadline has passed, is closed with its cancellation
+ * status at the next match and counts as avoided work, see {@link DeadlineInterceptor}.
+ */
+final class BookSearchStream implements Runnable {
+    private final BookIndex.Query query;
+    private final ServerCallStreamObserver<BookMatch> observer;
+    private final int limit;
+    private int position;
+    private int sent;
+    private boolean done;
+
+    private BookSearchStream(BookIndex.Query query, int position, int limit,
+                             ServerCallStreamObserver<BookMatch> observer) {
+        this.query = query;
+        this.position = position;
+        this.limit = limit;
+        this.observer = observer;
+    }
+
+    static void start(BookIndex index, BookSearchAll request, StreamObserver<BookMatch> responseObserver) {
+        ServerCallStreamObserver<BookMatch> observer = (ServerCallStreamObserver<BookMatch>) responseObserver;
+        if (request.getLimit() < 0) {
+            observer.onError(Status.INVALID_ARGUMENT
+                    .withDescription("limit must not be negative").asRuntimeException());
+            return;
+        }
+        int position;
+        try {
+            position = request.getPageToken().isEmpty() ? 0 : Integer.parseInt(request.getPageToken());
+        } catch (NumberFormatException e) {
+            position = -1;
+        }
+        if (position < 0) {
+            observer.onError(Status.INVALID_ARGUMENT
+                    .withDescription("Malformed page token: " + request.getPageToken()).asRuntimeException());
+            return;
+        }
+        BookSearchStream stream = new BookSearchStream(index.query(request.getSearch()), position,
+                request.getLimit() == 0 ? Integer.MAX_VALUE : request.getLimit(), observer);
+        // Without a cancel handler onNext would throw once the client goes away. A stream waiting
+        // for onReady never hears from the transport again, so this is where it stops.
+        observer.setOnCancelHandler(stream::cancel);
+        // gRPC replays the initial onReady once this handler method returns
+        observer.setOnReadyHandler(stream);
+    }
+
+    @Override
+    public void run() {
+        while (!done && observer.isReady()) {
+            if (observer.isCancelled()) {
+                cancel();
+                return;
+            }
+            position = sent < limit ? query.next(position) : -1;
+            if (position < 0) {
+                done = true;
+                observer.onCompleted();
+                return;
+            }
+            observer.onNext(BookMatch.newBuilder()
+                    .setBook(query.book(position))
+                    .setPageToken(Integer.toString(position + 1))
+                    .build());
+            position++;
+            sent++;
+        }
+    }
+
+    // Runs serialized with onReady, so done needs no synchronization
+    private void cancel() {
+        if (!done) {
+            done = true;
+            DeadlineInterceptor.avoided(DeadlineInterceptor.Stage.STREAM);
+            observer.onError(DeadlineInterceptor.status(Context.current()).asRuntimeException());
+        }
+    }
+}
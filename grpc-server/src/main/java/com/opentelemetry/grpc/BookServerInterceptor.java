@@ -0,0 +1,182 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.common.AsyncLogger;
+import com.opentelemetry.common.MetadataPropagation;
+import com.opentelemetry.common.RpcPhases;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Grpc;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.semconv.trace.attributes.SemanticAttributes;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Creates a server span for every call, continuing the trace propagated in the request metadata.
+ *
+ * The span stays current while the handler runs and ends when the call is closed (or cancelled),
+ * carrying the final gRPC status. Metrics are recorded separately, see {@link RpcMetricsInterceptor}.
+ */
+class BookServerInterceptor implements ServerInterceptor {
+    private static final AsyncLogger logger = AsyncLogger.getLogger(BookServerInterceptor.class);
+
+    private final Tracer tracer;
+    private final MetadataPropagation propagation;
+
+    BookServerInterceptor(OpenTelemetry openTelemetry) {
+        this.tracer = openTelemetry.getTracer("com.opentelemetry.grpc.server.ReturnBook");
+        this.propagation = MetadataPropagation.create(openTelemetry);
+    }
+
+    @Override
+    public <ReqT, RespT> Listener<ReqT>
+    interceptCall(ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        // Extract the Distributed Context from the gRPC metadata
+        Context extractedContext = propagation.extract(Context.current(), headers);
+        MethodDescriptor<ReqT, RespT> method = call.getMethodDescriptor();
+        // Build a span based on the received context. The rpc attributes are set before
+        // startSpan() so that per-method sampling can see them.
+        Span span =
+                tracer
+                        .spanBuilder("/ReturnBook")
+                        .setParent(extractedContext)
+                        .setSpanKind(SpanKind.SERVER)
+                        .setAttribute(SemanticAttributes.RPC_SERVICE, method.getServiceName())
+                        .setAttribute(SemanticAttributes.RPC_METHOD,
+                                MethodDescriptor.extractBareMethodName(method.getFullMethodName()))
+                        .startSpan();
+        // Phase events recorded so far, and from now on, go to this span
+        RpcPhases.attach(span);
+        // Unsampled calls skip attribute building and logging entirely
+        if (span.isRecording()) {
+            // Metadata is mutable, so it is rendered before the call moves on
+            logger.info(() -> "Received following metadata: " + headers);
+            logger.info("Extracted context is : {0}", extractedContext);
+            span.setAttribute("component", "grpc");
+            SocketAddress clientInfo = call.getAttributes().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR);
+            if (clientInfo instanceof InetSocketAddress) {
+                span.setAttribute(SemanticAttributes.NET_SOCK_PEER_ADDR,
+                        ((InetSocketAddress) clientInfo).getHostString());
+            }
+        }
+
+        Context spanContext = extractedContext.with(span);
+        TracingServerCall<ReqT, RespT> tracingCall = new TracingServerCall<>(call, span);
+        try (Scope ignored = spanContext.makeCurrent()) {
+            // Process the gRPC call normally
+            return new TracingListener<>(next.startCall(tracingCall, headers), spanContext, tracingCall);
+        } catch (RuntimeException e) {
+            tracingCall.fail(e);
+            throw e;
+        }
+    }
+
+    private final class TracingServerCall<ReqT, RespT>
+            extends ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT> {
+        private final Span span;
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        TracingServerCall(ServerCall<ReqT, RespT> delegate, Span span) {
+            super(delegate);
+            this.span = span;
+        }
+
+        @Override
+        public void close(Status status, Metadata trailers) {
+            try {
+                super.close(status, trailers);
+            } finally {
+                finish(status);
+            }
+        }
+
+        void fail(Throwable t) {
+            span.recordException(t);
+            finish(Status.fromThrowable(t));
+        }
+
+        void finish(Status status) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            if (span.isRecording()) {
+                span.setAttribute(SemanticAttributes.RPC_GRPC_STATUS_CODE, (long) status.getCode().value());
+                if (!status.isOk()) {
+                    span.setStatus(StatusCode.ERROR, status.getCode() + ": " + status.getDescription());
+                }
+            }
+            span.end();
+        }
+    }
+
+    /** Makes the call's span current for every callback, and ends it if the call is cancelled. */
+    private static final class TracingListener<ReqT>
+            extends ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT> {
+        private final Context spanContext;
+        private final TracingServerCall<ReqT, ?> call;
+
+        TracingListener(Listener<ReqT> delegate, Context spanContext, TracingServerCall<ReqT, ?> call) {
+            super(delegate);
+            this.spanContext = spanContext;
+            this.call = call;
+        }
+
+        @Override
+        public void onMessage(ReqT message) {
+            try (Scope ignored = spanContext.makeCurrent()) {
+                super.onMessage(message);
+            } catch (RuntimeException e) {
+                call.fail(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public void onHalfClose() {
+            try (Scope ignored = spanContext.makeCurrent()) {
+                super.onHalfClose();
+            } catch (RuntimeException e) {
+                call.fail(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public void onCancel() {
+            try (Scope ignored = spanContext.makeCurrent()) {
+                super.onCancel();
+            } finally {
+                call.finish(Status.CANCELLED);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            try (Scope ignored = spanContext.makeCurrent()) {
+                super.onComplete();
+            }
+        }
+
+        @Override
+        public void onReady() {
+            try (Scope ignored = spanContext.makeCurrent()) {
+                super.onReady();
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.common.AsyncLogger;
+import com.opentelemetry.proto.Book;
+import com.opentelemetry.proto.BookBatch;
+import com.opentelemetry.proto.BookMatch;
+import com.opentelemetry.proto.BookSearch;
+import com.opentelemetry.proto.BookSearchAll;
+import com.opentelemetry.proto.BookSearchBatch;
+import com.opentelemetry.proto.BookStoreGrpc;
+import com.opentelemetry.proto.FuzzySearch;
+import com.opentelemetry.proto.ScoredBooks;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+import java.util.function.Supplier;
+
+/**
+ * The BookStore service, shared by both servers. Every call reads one snapshot of the catalog
+ * and uses it throughout.
+ */
+class BookStoreImpl extends BookStoreGrpc.BookStoreImplBase {
+    private static final AsyncLogger logger = AsyncLogger.getLogger(BookStoreImpl.class);
+    // Lookups between cancellation checks in a batch, a power of two
+    private static final int CANCEL_CHECK_INTERVAL = 64;
+
+    private final Supplier<BookIndex> catalog;
+
+    BookStoreImpl(Supplier<BookIndex> catalog) {
+        this.catalog = catalog;
+    }
+
+    @Override
+    public void first(BookSearch searchQuery, StreamObserver<Book> responseObserver) {
+        logger.info("Searching for book with title: {0}", searchQuery.getName());
+        Book foundBook = catalog.get().first(searchQuery);
+        if (foundBook == null) {
+            responseObserver.onError(notFound(searchQuery).asRuntimeException());
+            return;
+        }
+        responseObserver.onNext(foundBook);
+        responseObserver.onCompleted();
+    }
+
+    /** The status of a {@code first} call that matched no book. */
+    static Status notFound(BookSearch search) {
+        return Status.NOT_FOUND.withDescription("No book matches \"" + search.getName() + "\"");
+    }
+
+    @Override
+    public void searchAll(BookSearchAll request, StreamObserver<BookMatch> responseObserver) {
+        logger.info("Streaming all books matching: {0}", request.getSearch());
+        BookSearchStream.start(catalog.get(), request, responseObserver);
+    }
+
+    @Override
+    public void firstBatch(BookSearchBatch request, StreamObserver<BookBatch> responseObserver) {
+        logger.info("Searching for a batch of {0} books", request.getSearchesCount());
+        // One snapshot for the whole batch, so a reload cannot split it across versions
+        BookIndex index = catalog.get();
+        BookBatch.Builder batch = BookBatch.newBuilder();
+        for (int i = 0; i < request.getSearchesCount(); i++) {
+            // Nobody is waiting for the rest of a cancelled batch
+            if ((i & (CANCEL_CHECK_INTERVAL - 1)) == 0 && i > 0
+                    && DeadlineInterceptor.abandoned(DeadlineInterceptor.Stage.BATCH)) {
+                responseObserver.onError(DeadlineInterceptor.status(Context.current()).asRuntimeException());
+                return;
+            }
+            Book foundBook = index.first(request.getSearches(i));
+            batch.addBooks(foundBook == null ? Book.getDefaultInstance() : foundBook);
+        }
+        responseObserver.onNext(batch.build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void fuzzySearch(FuzzySearch request, StreamObserver<ScoredBooks> responseObserver) {
+        logger.info("Fuzzy search for: {0}", request.getQuery());
+        FuzzyIndex.answer(catalog.get(), request, responseObserver);
+    }
+}
@@ -0,0 +1,113 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.common.AsyncLogger;
+import com.opentelemetry.proto.Book;
+import com.opentelemetry.proto.BookSearch;
+import com.opentelemetry.proto.BookStoreGrpc;
+import io.grpc.BindableService;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+import io.opentelemetry.api.OpenTelemetry;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+
+/**
+ * Binds a BookStore implementation with {@code first} answered through a {@link BookResponseCache}.
+ *
+ * The {@code first} method is re-declared with a response marshaller over {@code byte[]}, so a
+ * cached response is written to the wire as-is and a hit never touches protobuf encoding. A miss
+ * searches the index, serializes the {@link Book} once and caches the bytes. The remaining methods
+ * keep the bindings of the wrapped implementation.
+ */
+final class CachedBookStoreService {
+    private static final AsyncLogger logger = AsyncLogger.getLogger(CachedBookStoreService.class);
+    private static final String FIRST = MethodDescriptor.generateFullMethodName(BookStoreGrpc.SERVICE_NAME, "first");
+
+    private CachedBookStoreService() {
+    }
+
+    /**
+     * Binds {@code impl} with a cache of {@code bookstore.cache.size} responses (default 10000), or
+     * unchanged when the size is 0.
+     *
+     * @param index the catalog to search; returning a different instance invalidates the cache
+     */
+    static ServerServiceDefinition bind(BindableService impl, Supplier<BookIndex> index, OpenTelemetry openTelemetry) {
+        ServerServiceDefinition bound = impl.bindService();
+        int maximumSize = Integer.getInteger("bookstore.cache.size", 10000);
+        if (maximumSize <= 0) {
+            return bound;
+        }
+        BookResponseCache cache = new BookResponseCache(maximumSize);
+        cache.registerMetrics(openTelemetry.getMeter("com.opentelemetry.grpc.server"));
+        // The generated ServiceDescriptor pins the original method descriptors, so the definition is
+        // rebuilt from the service name
+        ServerServiceDefinition.Builder builder = ServerServiceDefinition.builder(BookStoreGrpc.SERVICE_NAME);
+        for (ServerMethodDefinition<?, ?> method : bound.getMethods()) {
+            if (!FIRST.equals(method.getMethodDescriptor().getFullMethodName())) {
+                builder.addMethod(method);
+            }
+        }
+        @SuppressWarnings("unchecked")
+        MethodDescriptor<BookSearch, Book> first =
+                (MethodDescriptor<BookSearch, Book>) bound.getMethod(FIRST).getMethodDescriptor();
+        MethodDescriptor<BookSearch, byte[]> cachedFirst =
+                first.toBuilder(first.getRequestMarshaller(), new PayloadMarshaller()).build();
+        builder.addMethod(cachedFirst, ServerCalls.asyncUnaryCall(
+                (BookSearch request, StreamObserver<byte[]> responseObserver) ->
+                        first(request, responseObserver, index.get(), cache)));
+        return builder.build();
+    }
+
+    private static void first(BookSearch request, StreamObserver<byte[]> responseObserver, BookIndex index,
+                              BookResponseCache cache) {
+        logger.info("Searching for book with title: {0}", request.getName());
+        BookSearch key = BookResponseCache.normalize(request);
+        byte[] payload = cache.get(index, key);
+        if (payload == null) {
+            Book foundBook = index.first(key);
+            // Searches without a match are not cached and fail exactly as in BookStoreImpl
+            if (foundBook == null) {
+                responseObserver.onError(BookStoreImpl.notFound(key).asRuntimeException());
+                return;
+            }
+            payload = foundBook.toByteArray();
+            cache.put(index, key, payload);
+        }
+        responseObserver.onNext(payload);
+        responseObserver.onCompleted();
+    }
+
+    /** Writes already-serialized {@link Book} bytes. */
+    private static final class PayloadMarshaller implements MethodDescriptor.Marshaller<byte[]> {
+        @Override
+        public InputStream stream(byte[] value) {
+            return new PayloadStream(value);
+        }
+
+        @Override
+        public byte[] parse(InputStream stream) {
+            try {
+                return stream.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // KnownLength lets the transport size the frame up front instead of buffering the stream
+    private static final class PayloadStream extends ByteArrayInputStream implements KnownLength {
+        PayloadStream(byte[] payload) {
+            super(payload);
+        }
+    }
+}
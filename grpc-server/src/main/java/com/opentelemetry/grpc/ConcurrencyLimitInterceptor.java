@@ -0,0 +1,265 @@
+package com.opentelemetry.grpc;
+
+import io.grpc.Context;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerStreamTracer;
+import io.grpc.Status;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.metrics.Meter;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Sheds load by capping the number of calls in flight at a limit that adapts to measured latency.
+ *
+ * The limit follows a gradient algorithm. A long-term average of unary call latency approximates
+ * the latency without queueing, and a short-term average tracks the current latency. Latency is
+ * measured from the moment the transport created the call's stream, so it includes the wait for
+ * the call executor. Completed calls are summed into 100 ms windows, and at the end of each window
+ * the limit moves towards {@code limit * long / short + sqrt(limit)}. It shrinks as soon as calls
+ * slow down relative to the baseline and grows by roughly the square root of the limit while they
+ * do not. The limit only moves while at least half of it was in use during the window, so an idle
+ * server does not inflate it.
+ *
+ * Calls over the limit are closed immediately with {@code RESOURCE_EXHAUSTED}, before the handler
+ * runs. Methods listed as low priority may only use {@code lowPriorityShare} of the limit, so they
+ * are shed first. Streaming calls count towards the limit, but they are not sampled, because
+ * their duration depends on the client.
+ */
+class ConcurrencyLimitInterceptor implements ServerInterceptor {
+    private static final Logger logger = Logger.getLogger(ConcurrencyLimitInterceptor.class.getName());
+    // Smoothing factors of the short- and long-term latency averages
+    private static final double SHORT_ALPHA = 2d / (10 + 1);
+    private static final double LONG_ALPHA = 2d / (600 + 1);
+    // Latency may rise this far over the baseline before the limit starts to shrink
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    // Set by the stream tracer when the transport creates the call's stream
+    private static final Context.Key<Long> ARRIVAL_NANOS = Context.key("limit-arrival-nanos");
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final Set<String> lowPriorityMethods;
+    private final double lowPriorityShare;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile double limit;
+    // The window being filled by completing calls
+    private final LongAdder windowRttNanos = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private final LongAccumulator windowInFlight = new LongAccumulator(Math::max, 0);
+    private volatile long windowEnd = System.nanoTime() + WINDOW_NANOS;
+    // Held by the one thread closing a window; also guards the averages below
+    private final AtomicBoolean updating = new AtomicBoolean();
+    private double shortRtt;
+    private double longRtt;
+
+    ConcurrencyLimitInterceptor(int initialLimit, int minLimit, int maxLimit,
+                                Set<String> lowPriorityMethods, double lowPriorityShare) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.lowPriorityMethods = lowPriorityMethods;
+        this.lowPriorityShare = lowPriorityShare;
+    }
+
+    /**
+     * Installs a limiter on {@code builder} when {@code grpc.server.limit} is {@code adaptive}.
+     * {@code grpc.server.limit.initial}, {@code .min} and {@code .max} bound the limit (defaults
+     * 20, 4 and 1000). {@code grpc.server.limit.low.priority} lists full method names, separated by
+     * commas, that may only use {@code grpc.server.limit.low.share} of the limit (default 0.5).
+     */
+    static void configure(ServerBuilder<?> builder, OpenTelemetry openTelemetry) {
+        if (!"adaptive".equals(System.getProperty("grpc.server.limit", "none"))) {
+            return;
+        }
+        String lowPriority = System.getProperty("grpc.server.limit.low.priority", "");
+        ConcurrencyLimitInterceptor limiter = new ConcurrencyLimitInterceptor(
+                Integer.getInteger("grpc.server.limit.initial", 20),
+                Integer.getInteger("grpc.server.limit.min", 4),
+                Integer.getInteger("grpc.server.limit.max", 1000),
+                lowPriority.isEmpty() ? Set.of() : Set.of(lowPriority.split("\\s*,\\s*")),
+                Double.parseDouble(System.getProperty("grpc.server.limit.low.share", "0.5")));
+        limiter.registerMetrics(openTelemetry.getMeter("com.opentelemetry.grpc.server"));
+        builder.addStreamTracerFactory(new ServerStreamTracer.Factory() {
+            @Override
+            public ServerStreamTracer newServerStreamTracer(String fullMethodName, Metadata headers) {
+                Long arrivalNanos = System.nanoTime();
+                return new ServerStreamTracer() {
+                    @Override
+                    public Context filterContext(Context context) {
+                        return context.withValue(ARRIVAL_NANOS, arrivalNanos);
+                    }
+                };
+            }
+        });
+        builder.intercept(limiter);
+        logger.info("Adaptive concurrency limit enabled, starting at " + limiter.limit());
+    }
+
+    @Override
+    public <ReqT, RespT> Listener<ReqT>
+    interceptCall(ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        MethodDescriptor<ReqT, RespT> method = call.getMethodDescriptor();
+        double admitted = lowPriorityMethods.contains(method.getFullMethodName()) ? limit * lowPriorityShare : limit;
+        if (!tryAcquire(Math.max(1, (int) admitted))) {
+            rejected.increment();
+            call.close(Status.RESOURCE_EXHAUSTED.withDescription("Server concurrency limit reached"), new Metadata());
+            return new Listener<ReqT>() {
+            };
+        }
+        Permit<ReqT, RespT> permit = new Permit<>(call, method.getType() == MethodDescriptor.MethodType.UNARY);
+        try {
+            return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(
+                    next.startCall(permit, headers)) {
+                @Override
+                public void onCancel() {
+                    try {
+                        super.onCancel();
+                    } finally {
+                        permit.release(false);
+                    }
+                }
+            };
+        } catch (RuntimeException e) {
+            permit.release(false);
+            throw e;
+        }
+    }
+
+    private boolean tryAcquire(int admitted) {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= admitted) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /** Adds one completed call to the current window, closing the window if it ended by {@code now}. */
+    void onSample(long rttNanos, int inFlightAtStart, long now) {
+        windowRttNanos.add(rttNanos);
+        windowSamples.increment();
+        windowInFlight.accumulate(inFlightAtStart);
+        if (now - windowEnd < 0 || !updating.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // Another thread may have closed the window between the check and the flag
+            if (now - windowEnd >= 0) {
+                windowEnd = now + WINDOW_NANOS;
+                long samples = windowSamples.sumThenReset();
+                long rttNanosSum = windowRttNanos.sumThenReset();
+                long inFlightMax = windowInFlight.getThenReset();
+                if (samples > 0) {
+                    update((double) rttNanosSum / samples, inFlightMax);
+                }
+            }
+        } finally {
+            updating.set(false);
+        }
+    }
+
+    // Only called while holding updating
+    private void update(double rttNanos, long inFlightMax) {
+        if (longRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+            return;
+        }
+        shortRtt += SHORT_ALPHA * (rttNanos - shortRtt);
+        longRtt += LONG_ALPHA * (rttNanos - longRtt);
+        // After a sustained change in load the baseline drifts back towards the current latency
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        double current = limit;
+        if (inFlightMax < current / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        double target = current * gradient + Math.sqrt(current);
+        limit = Math.max(minLimit, Math.min(maxLimit, current * (1 - SMOOTHING) + target * SMOOTHING));
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    long rejectedCount() {
+        return rejected.sum();
+    }
+
+    void registerMetrics(Meter meter) {
+        meter.gaugeBuilder("rpc.server.concurrency.limit").ofLongs().setUnit("{request}")
+                .setDescription("Current adaptive limit on calls in flight")
+                .buildWithCallback(measurement -> measurement.record(limit()));
+        meter.gaugeBuilder("rpc.server.concurrency.in_flight").ofLongs().setUnit("{request}")
+                .setDescription("Calls currently admitted")
+                .buildWithCallback(measurement -> measurement.record(inFlight()));
+        meter.counterBuilder("rpc.server.concurrency.rejected").setUnit("{request}")
+                .setDescription("Calls rejected with RESOURCE_EXHAUSTED by the concurrency limit")
+                .buildWithCallback(measurement -> measurement.record(rejectedCount()));
+    }
+
+    // Falls back to now for a limiter installed without configure(), which adds the stream tracer
+    private static long arrivalNanos() {
+        Long arrivalNanos = ARRIVAL_NANOS.get();
+        return arrivalNanos != null ? arrivalNanos : System.nanoTime();
+    }
+
+    /** Holds one unit of the limit until the call is closed or cancelled. */
+    private final class Permit<ReqT, RespT> extends ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT> {
+        private final boolean sampled;
+        private final long startNanos = arrivalNanos();
+        private final int inFlightAtStart = inFlight.get();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(ServerCall<ReqT, RespT> delegate, boolean sampled) {
+            super(delegate);
+            this.sampled = sampled;
+        }
+
+        @Override
+        public void close(Status status, Metadata trailers) {
+            try {
+                super.close(status, trailers);
+            } finally {
+                release(status.isOk());
+            }
+        }
+
+        void release(boolean ok) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            inFlight.decrementAndGet();
+            if (ok && sampled) {
+                long now = System.nanoTime();
+                onSample(now - startNanos, inFlightAtStart, now);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.opentelemetry.grpc;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Deadline;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Skips work for callers that have already given up.
+ *
+ * A call whose deadline passes, or whose client cancels it, while it waits for the call executor
+ * is dropped before its handler runs. Handlers that produce many results, the {@code searchAll}
+ * stream and {@code firstBatch}, check {@link #abandoned(Stage)} as they go and stop early. Every
+ * call cut short counts towards {@code rpc.server.work.avoided}, by the {@code stage} it was
+ * stopped at.
+ */
+class DeadlineInterceptor implements ServerInterceptor {
+    private static final AttributeKey<String> STAGE = AttributeKey.stringKey("stage");
+
+    /** Where a call was stopped. */
+    enum Stage {
+        /** Before the handler ran. */
+        QUEUED,
+        /** While streaming matches. */
+        STREAM,
+        /** Part way through a batch. */
+        BATCH;
+
+        private final LongAdder avoided = new LongAdder();
+        private final Attributes attributes = Attributes.of(STAGE, name().toLowerCase(Locale.ROOT));
+    }
+
+    /** Drops expired and cancelled calls on {@code builder}, and publishes the counter. */
+    static void configure(ServerBuilder<?> builder, OpenTelemetry openTelemetry) {
+        registerMetrics(openTelemetry.getMeter("com.opentelemetry.grpc.server"));
+        builder.intercept(new DeadlineInterceptor());
+    }
+
+    /**
+     * Whether the current call has been cancelled or has run out of time, counting it as avoided
+     * work at {@code stage} if so. Handlers call this between units of work and, when it is true,
+     * close the call with {@link #status(Context)} instead of finishing the work.
+     */
+    static boolean abandoned(Stage stage) {
+        if (!expired(Context.current())) {
+            return false;
+        }
+        avoided(stage);
+        return true;
+    }
+
+    /** Counts one call of avoided work at {@code stage}. */
+    static void avoided(Stage stage) {
+        stage.avoided.increment();
+    }
+
+    /** Calls of avoided work counted at {@code stage} so far. */
+    static long avoidedCount(Stage stage) {
+        return stage.avoided.sum();
+    }
+
+    private static boolean expired(Context context) {
+        if (context.isCancelled()) {
+            return true;
+        }
+        Deadline deadline = context.getDeadline();
+        return deadline != null && deadline.isExpired();
+    }
+
+    @Override
+    public <ReqT, RespT> Listener<ReqT>
+    interceptCall(ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        Context context = Context.current();
+        if (expired(context)) {
+            avoided(Stage.QUEUED);
+            call.close(status(context), new Metadata());
+            return new Listener<ReqT>() {
+            };
+        }
+        // Handlers taking a single request only run on half-close, which is queued separately
+        // from the call itself. Until then nothing has been sent, so the call may still be closed here.
+        boolean handlerPending = call.getMethodDescriptor().getType().clientSendsOneMessage();
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(next.startCall(call, headers)) {
+            private boolean dropped;
+
+            @Override
+            public void onMessage(ReqT message) {
+                if (!dropped && context.isCancelled()) {
+                    dropped = true;
+                    avoided(Stage.QUEUED);
+                }
+                if (!dropped) {
+                    super.onMessage(message);
+                }
+            }
+
+            @Override
+            public void onHalfClose() {
+                if (!dropped && (handlerPending ? expired(context) : context.isCancelled())) {
+                    dropped = true;
+                    avoided(Stage.QUEUED);
+                    if (!context.isCancelled()) {
+                        call.close(status(context), new Metadata());
+                    }
+                }
+                if (!dropped) {
+                    super.onHalfClose();
+                }
+            }
+        };
+    }
+
+    /** Why the call of {@code context} was abandoned: its cancellation status, or an expired deadline. */
+    static Status status(Context context) {
+        Status status = Contexts.statusFromCancelled(context);
+        return status != null ? status : Status.DEADLINE_EXCEEDED.withDescription("Deadline passed while queued");
+    }
+
+    private static void registerMetrics(Meter meter) {
+        meter.counterBuilder("rpc.server.work.avoided").setUnit("{call}")
+                .setDescription("Calls dropped or stopped early because the client had cancelled or its deadline had passed")
+                .buildWithCallback(measurement -> {
+                    for (Stage stage : Stage.values()) {
+                        measurement.record(avoidedCount(stage), stage.attributes);
+                    }
+                });
+    }
+}
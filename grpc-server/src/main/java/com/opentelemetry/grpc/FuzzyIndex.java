@@ -0,0 +1,437 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.proto.FuzzySearch;
+import com.opentelemetry.proto.ScoredBook;
+import com.opentelemetry.proto.ScoredBooks;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Typo-tolerant search over the titles and authors of one {@link BookIndex} snapshot.
+ *
+ * Titles and distinct authors are lowercased with whitespace collapsed, and indexed by their
+ * trigrams, every three consecutive characters. A query matches any part of a field, so "gatbsy"
+ * finds "The Great Gatsby" with one edit. The candidates for a query are the fields sharing at least
+ * one of its trigrams, counted over the trigram posting lists. One edit breaks at most four of the
+ * query's trigrams, so a field sharing {@code c} of its {@code t} trigrams needs at least
+ * {@code (t - c) / 4} edits, rounded up. Candidates are verified from the most shared trigrams down
+ * and the best {@code limit} are kept in a bounded heap. The scan stops once that bound says no
+ * remaining candidate can beat the worst match kept, and after {@value #MAX_VERIFIED} candidates
+ * per field in any case, which caps the cost of very common queries.
+ *
+ * Matches rank by fewest edits, then most shared trigrams, then shortest field. An author match
+ * stands for that author's books in title order.
+ */
+final class FuzzyIndex {
+    static final int DEFAULT_LIMIT = 10;
+    static final int MAX_LIMIT = 100;
+    static final int MAX_EDITS = 2;
+    // One bit per query character in a long, which also keeps trigram counts within a byte
+    static final int MAX_QUERY_LENGTH = 64;
+    private static final int MAX_VERIFIED = 10_000;
+
+    private final BookIndex index;
+    private final Trigrams titles;
+    private final Trigrams authors;
+
+    private FuzzyIndex(BookIndex index, Trigrams titles, Trigrams authors) {
+        this.index = index;
+        this.titles = titles;
+        this.authors = authors;
+    }
+
+    static FuzzyIndex build(BookIndex index) {
+        return new FuzzyIndex(index, Trigrams.of(index.size(), index::title),
+                Trigrams.of(index.authorCount(), index::author));
+    }
+
+    /** Validates {@code request} and answers it from the fuzzy index of {@code index}. */
+    static void answer(BookIndex index, FuzzySearch request, StreamObserver<ScoredBooks> responseObserver) {
+        if (request.getLimit() < 0 || request.getLimit() > MAX_LIMIT) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("limit must be between 0 and " + MAX_LIMIT).asRuntimeException());
+            return;
+        }
+        if (request.hasMaxEdits() && (request.getMaxEdits().getValue() < 0 || request.getMaxEdits().getValue() > MAX_EDITS)) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("max_edits must be between 0 and " + MAX_EDITS).asRuntimeException());
+            return;
+        }
+        String query = normalize(request.getQuery());
+        if (query.length() < 3) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("query needs at least 3 characters").asRuntimeException());
+            return;
+        }
+        if (query.length() > MAX_QUERY_LENGTH) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("query must be at most " + MAX_QUERY_LENGTH + " characters").asRuntimeException());
+            return;
+        }
+        int maxEdits = request.hasMaxEdits() ? request.getMaxEdits().getValue() : query.length() <= 5 ? 1 : 2;
+        int limit = request.getLimit() == 0 ? DEFAULT_LIMIT : request.getLimit();
+        responseObserver.onNext(index.fuzzy().search(query, maxEdits, limit));
+        responseObserver.onCompleted();
+    }
+
+    /** @param query a {@link #normalize normalized} query of 3 to {@value #MAX_QUERY_LENGTH} characters */
+    ScoredBooks search(String query, int maxEdits, int limit) {
+        Search search = new Search(query.toCharArray(), maxEdits);
+        List<Match> candidates = new ArrayList<>(titles.search(search, ScoredBook.Field.NAME, limit));
+        for (Match author : authors.search(search, ScoredBook.Field.AUTHOR, limit)) {
+            for (int id : index.booksByAuthor(author.id, limit)) {
+                candidates.add(new Match(ScoredBook.Field.AUTHOR, id, author.edits, author.shared, author.length));
+            }
+        }
+        Collections.sort(candidates);
+        // A book can match by title and by author; keep its better match
+        Set<Integer> seen = new HashSet<>();
+        ScoredBooks.Builder result = ScoredBooks.newBuilder();
+        for (Match match : candidates) {
+            if (result.getMatchesCount() == limit) {
+                break;
+            }
+            if (seen.add(match.id)) {
+                result.addMatches(ScoredBook.newBuilder()
+                        .setBook(index.book(match.id))
+                        .setScore((query.length() - match.edits) / (double) query.length())
+                        .setEdits(match.edits)
+                        .setField(match.field));
+            }
+        }
+        return result.build();
+    }
+
+    /** Lowercases {@code value}, trims it and collapses each run of whitespace to one space. */
+    static String normalize(String value) {
+        String lower = value.toLowerCase(Locale.ROOT);
+        StringBuilder normalized = new StringBuilder(lower.length());
+        boolean space = false;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = normalized.length() > 0;
+            } else {
+                if (space) {
+                    normalized.append(' ');
+                    space = false;
+                }
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    /** Exact for characters below U+0400; a collision above only adds a candidate to verify. */
+    private static int trigram(char[] text, int at) {
+        return (text[at] << 20) ^ (text[at + 1] << 10) ^ text[at + 2];
+    }
+
+    private static void offer(PriorityQueue<Match> best, Match match, int limit) {
+        if (best.size() < limit) {
+            best.add(match);
+        } else if (match.compareTo(best.peek()) < 0) {
+            best.poll();
+            best.add(match);
+        }
+    }
+
+    private static final class Match implements Comparable<Match> {
+        final ScoredBook.Field field;
+        // A book id, or an author key until it is expanded into books
+        final int id;
+        final int edits;
+        final int shared;
+        final int length;
+
+        Match(ScoredBook.Field field, int id, int edits, int shared, int length) {
+            this.field = field;
+            this.id = id;
+            this.edits = edits;
+            this.shared = shared;
+            this.length = length;
+        }
+
+        /** Fewest edits first, then most shared trigrams, then shortest field. */
+        @Override
+        public int compareTo(Match other) {
+            return compare(edits, shared, length, field, id, other);
+        }
+
+        static int compare(int edits, int shared, int length, ScoredBook.Field field, int id, Match other) {
+            if (edits != other.edits) {
+                return Integer.compare(edits, other.edits);
+            }
+            if (shared != other.shared) {
+                return Integer.compare(other.shared, shared);
+            }
+            if (length != other.length) {
+                return Integer.compare(length, other.length);
+            }
+            if (field != other.field) {
+                return Integer.compare(field.getNumber(), other.field.getNumber());
+            }
+            return Integer.compare(id, other.id);
+        }
+    }
+
+    /**
+     * One query: its distinct trigrams, and where each character occurs in it as a bit mask, bit
+     * {@code i} standing for query character {@code i}.
+     */
+    private static final class Search {
+        final char[] query;
+        final int[] trigrams;
+        final int maxEdits;
+        private final long[] asciiMasks = new long[128];
+        private final char[] otherChars;
+        private final long[] otherMasks;
+
+        Search(char[] query, int maxEdits) {
+            this.query = query;
+            this.maxEdits = maxEdits;
+            int[] trigrams = new int[query.length - 2];
+            for (int i = 0; i < trigrams.length; i++) {
+                trigrams[i] = trigram(query, i);
+            }
+            Arrays.sort(trigrams);
+            int distinct = 0;
+            for (int i = 0; i < trigrams.length; i++) {
+                if (i == 0 || trigrams[i] != trigrams[i - 1]) {
+                    trigrams[distinct++] = trigrams[i];
+                }
+            }
+            this.trigrams = Arrays.copyOf(trigrams, distinct);
+
+            char[] otherChars = new char[query.length];
+            long[] otherMasks = new long[query.length];
+            int others = 0;
+            for (int i = 0; i < query.length; i++) {
+                char c = query[i];
+                if (c < asciiMasks.length) {
+                    asciiMasks[c] |= 1L << i;
+                    continue;
+                }
+                int k = 0;
+                while (k < others && otherChars[k] != c) {
+                    k++;
+                }
+                otherChars[k] = c;
+                otherMasks[k] |= 1L << i;
+                others = Math.max(others, k + 1);
+            }
+            this.otherChars = Arrays.copyOf(otherChars, others);
+            this.otherMasks = Arrays.copyOf(otherMasks, others);
+        }
+
+        private long mask(char c) {
+            if (c < asciiMasks.length) {
+                return asciiMasks[c];
+            }
+            for (int k = 0; k < otherChars.length; k++) {
+                if (otherChars[k] == c) {
+                    return otherMasks[k];
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Fewest edits turning the query into some substring of {@code text[from, to)}, counting a
+         * swap of adjacent characters as one edit, or {@code maxEdits + 1} when it takes more.
+         *
+         * This is Hyyrö's bit-parallel form of the edit distance table: each column is held as
+         * the +1 and -1 steps between its rows, one bit per query character, and computed from the
+         * previous column in a handful of word operations. The score tracks the last row.
+         */
+        int distance(char[] text, int from, int to) {
+            long last = 1L << (query.length - 1);
+            long plus = -1L;
+            long minus = 0;
+            long previousMask = 0;
+            long previousDiagonal = 0;
+            int score = query.length;
+            int best = score;
+            for (int j = from; j < to; j++) {
+                long mask = mask(text[j]);
+                long diagonal = (((~previousDiagonal & mask) << 1) & previousMask)
+                        | (((mask & plus) + plus) ^ plus) | mask | minus;
+                long horizontalPlus = minus | ~(diagonal | plus);
+                long horizontalMinus = diagonal & plus;
+                if ((horizontalPlus & last) != 0) {
+                    score++;
+                } else if ((horizontalMinus & last) != 0) {
+                    score--;
+                }
+                // The first row stays zero, as a match may start anywhere in the text
+                horizontalPlus <<= 1;
+                horizontalMinus <<= 1;
+                plus = horizontalMinus | ~(diagonal | horizontalPlus);
+                minus = horizontalPlus & diagonal;
+                previousDiagonal = diagonal;
+                previousMask = mask;
+                best = Math.min(best, score);
+                if (best == 0) {
+                    return 0;
+                }
+            }
+            return Math.min(best, maxEdits + 1);
+        }
+    }
+
+    /**
+     * Normalized terms stored back to back, and for each distinct trigram the ascending ids of the
+     * terms containing it, in compressed sparse row form.
+     */
+    private static final class Trigrams {
+        private final char[] text;
+        private final int[] starts;
+        private final int[] keys;
+        private final int[] postingStarts;
+        private final int[] postings;
+
+        private Trigrams(char[] text, int[] starts, int[] keys, int[] postingStarts, int[] postings) {
+            this.text = text;
+            this.starts = starts;
+            this.keys = keys;
+            this.postingStarts = postingStarts;
+            this.postings = postings;
+        }
+
+        static Trigrams of(int count, IntFunction<String> terms) {
+            int[] starts = new int[count + 1];
+            char[] text = new char[Math.max(16, 16 * count)];
+            long occurrences = 0;
+            for (int id = 0; id < count; id++) {
+                String term = normalize(terms.apply(id));
+                int end = starts[id] + term.length();
+                if (end > text.length) {
+                    text = Arrays.copyOf(text, Math.max(2 * text.length, end));
+                }
+                term.getChars(0, term.length(), text, starts[id]);
+                starts[id + 1] = end;
+                occurrences += Math.max(0, term.length() - 2);
+            }
+            if (occurrences > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Too many trigrams to index: " + occurrences);
+            }
+            // Sorting (trigram, id) pairs groups the ids of each trigram in ascending order
+            long[] pairs = new long[(int) occurrences];
+            int n = 0;
+            for (int id = 0; id < count; id++) {
+                for (int at = starts[id]; at + 3 <= starts[id + 1]; at++) {
+                    pairs[n++] = (long) trigram(text, at) << 32 | id;
+                }
+            }
+            Arrays.parallelSort(pairs);
+            int distinctKeys = 0;
+            int distinctPairs = 0;
+            for (int i = 0; i < n; i++) {
+                if (i == 0 || pairs[i] != pairs[i - 1]) {
+                    distinctPairs++;
+                    if (i == 0 || (pairs[i] >> 32) != (pairs[i - 1] >> 32)) {
+                        distinctKeys++;
+                    }
+                }
+            }
+            int[] keys = new int[distinctKeys];
+            int[] postingStarts = new int[distinctKeys + 1];
+            int[] postings = new int[distinctPairs];
+            int k = -1;
+            int p = 0;
+            for (int i = 0; i < n; i++) {
+                if (i > 0 && pairs[i] == pairs[i - 1]) {
+                    // The trigram repeats within the term
+                    continue;
+                }
+                int key = (int) (pairs[i] >> 32);
+                if (k < 0 || keys[k] != key) {
+                    keys[++k] = key;
+                    postingStarts[k] = p;
+                }
+                postings[p++] = (int) pairs[i];
+            }
+            postingStarts[distinctKeys] = p;
+            return new Trigrams(Arrays.copyOf(text, starts[count]), starts, keys, postingStarts, postings);
+        }
+
+        /** @return the best {@code limit} terms within the query's edit bound, worst first */
+        PriorityQueue<Match> search(Search search, ScoredBook.Field field, int limit) {
+            int terms = starts.length - 1;
+            // Counted for every term, so the inner loop is a bare increment over the posting list
+            byte[] shared = new byte[terms];
+            for (int trigram : search.trigrams) {
+                int k = Arrays.binarySearch(keys, trigram);
+                if (k < 0) {
+                    continue;
+                }
+                for (int p = postingStarts[k]; p < postingStarts[k + 1]; p++) {
+                    shared[postings[p]]++;
+                }
+            }
+
+            // Candidates are taken in groups needing the same minimum edits, one scan per group. In
+            // terms of trigrams missed, t - c, those are 0, 1 to 4, and 5 to 8, always sharing one.
+            int t = search.trigrams.length;
+            PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, Collections.reverseOrder());
+            int verified = 0;
+            int[] group = new int[64];
+            for (int minEdits = 0; minEdits <= search.maxEdits && verified < MAX_VERIFIED; minEdits++) {
+                int maxShared = t - Math.max(0, 4 * minEdits - 3);
+                int minShared = Math.max(1, t - 4 * minEdits);
+                if (minShared > maxShared) {
+                    break;
+                }
+                // Every match kept shares more trigrams than this group, so a tie on edits loses too
+                if (best.size() == limit && minEdits >= best.peek().edits) {
+                    break;
+                }
+                int[] sizes = new int[maxShared - minShared + 2];
+                int n = 0;
+                for (int id = 0; id < terms; id++) {
+                    int c = shared[id];
+                    if (c >= minShared && c <= maxShared) {
+                        if (n == group.length) {
+                            group = Arrays.copyOf(group, 2 * n);
+                        }
+                        group[n++] = id;
+                        sizes[maxShared - c + 1]++;
+                    }
+                }
+                // Most shared first, so the heap fills with the likeliest matches
+                for (int i = 1; i < sizes.length; i++) {
+                    sizes[i] += sizes[i - 1];
+                }
+                int[] ordered = new int[n];
+                for (int i = 0; i < n; i++) {
+                    ordered[sizes[maxShared - shared[group[i]]]++] = group[i];
+                }
+                for (int i = 0; i < n && verified < MAX_VERIFIED; i++) {
+                    int id = ordered[i];
+                    int c = shared[id];
+                    int length = starts[id + 1] - starts[id];
+                    // Even with the fewest edits it could need, this term would rank below the worst kept
+                    if (best.size() == limit && Match.compare(minEdits, c, length, field, id, best.peek()) >= 0) {
+                        continue;
+                    }
+                    int edits = search.distance(text, starts[id], starts[id + 1]);
+                    verified++;
+                    if (edits <= search.maxEdits) {
+                        offer(best, new Match(field, id, edits, c, length), limit);
+                    }
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -1,25 +1,42 @@
 package com.opentelemetry.grpc;
 
 
+import com.opentelemetry.common.AsyncLogger;
+import com.opentelemetry.common.MessageCompression;
+import com.opentelemetry.common.OtelSdkConfiguration;
+import com.opentelemetry.common.RpcPhases;
 import com.opentelemetry.proto.ClientInput;
 import com.opentelemetry.proto.GreeterGrpc;
 import com.opentelemetry.proto.ServerOutput;
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
+import io.grpc.ServerInterceptor;
 import io.grpc.stub.StreamObserver;
+import io.opentelemetry.api.OpenTelemetry;
 
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
-import java.util.logging.Logger;
 
 public class GreetServer {
-    private static final Logger logger = Logger.getLogger(GreetServer.class.getName());
+    private static final AsyncLogger logger = AsyncLogger.getLogger(GreetServer.class);
+    private static final OpenTelemetry openTelemetry = OtelSdkConfiguration.openTelemetry();
     private Server server;
     private void start() throws IOException {
-        int port = 50051;
-        server = ServerBuilder.forPort(port).addService(new GreeterImpl()).build().start();
+        ServerBuilder<?> builder = ServerTransports.forConfiguredAddress().addService(new GreeterImpl());
+        ServerInterceptor closeRejected = ServerExecutors.configure(builder, openTelemetry);
+        // Inside the limiter, so the calls it closes still release their permit
+        DeadlineInterceptor.configure(builder, openTelemetry);
+        ConcurrencyLimitInterceptor.configure(builder, openTelemetry);
+        MessageCompression.configure(builder, openTelemetry);
+        RpcPhases.configure(builder, openTelemetry);
+        // Outside the limiter and deadline checks, so the calls they reject are counted
+        RpcMetricsInterceptor.configure(builder, openTelemetry);
+        builder.intercept(AsyncLogger.callSampler());
+        // Outermost, so a call the executor turned away runs no other interceptor
+        builder.intercept(closeRejected);
+        server = builder.build().start();
 
-        logger.info("Server started, listening on " + port);
+        logger.info("Server started, listening on " + ServerTransports.describe());
 
         Runtime.getRuntime().addShutdownHook(new Thread() {
             @Override
@@ -36,7 +53,7 @@ public class GreetServer {
     static class GreeterImpl extends GreeterGrpc.GreeterImplBase {
         @Override
         public void greet(ClientInput req, StreamObserver<ServerOutput> responseObserver) {
-            logger.info("Got request from client: " + req);
+            logger.info("Got request from client: {0}", req);
             ServerOutput reply = ServerOutput.newBuilder().setMessage(
                     "Server says " + "\"" + req.getGreeting() + " " + req.getName() + "\""
             ).build();
@@ -0,0 +1,132 @@
+package com.opentelemetry.grpc;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The catalog currently being served, replaced as a whole when the catalog file changes.
+ *
+ * A new {@link BookIndex} is opened off to the side and published with a single atomic swap.
+ * Readers take one snapshot with {@link #get()} and use it for the whole call, so they never lock
+ * and never see a mix of two versions. An old mapping stays valid for as long as calls still hold
+ * it, provided the file is replaced rather than rewritten in place. {@link BookCatalogBuilder}
+ * replaces it with an atomic move. A reload that fails keeps serving the previous version.
+ */
+final class LiveBookCatalog implements Supplier<BookIndex> {
+    private static final Logger logger = Logger.getLogger(LiveBookCatalog.class.getName());
+
+    private final Path file;
+    private final AtomicReference<BookIndex> current;
+    private final DoubleHistogram reloadDuration;
+    private final LongCounter reloadFailures;
+
+    LiveBookCatalog(Path file, BookIndex initial, OpenTelemetry openTelemetry) {
+        this.file = file;
+        this.current = new AtomicReference<>(initial);
+        Meter meter = openTelemetry.getMeter("com.opentelemetry.grpc.server");
+        this.reloadDuration = meter.histogramBuilder("bookstore.catalog.reload.duration")
+                .setDescription("Time to open and publish a new catalog version")
+                .setUnit("ms")
+                .build();
+        this.reloadFailures = meter.counterBuilder("bookstore.catalog.reload.failures")
+                .setDescription("Catalog reloads that failed and kept the previous version")
+                .setUnit("{reload}")
+                .build();
+        meter.gaugeBuilder("bookstore.catalog.books").ofLongs().setUnit("{book}")
+                .setDescription("Books in the catalog being served")
+                .buildWithCallback(measurement -> measurement.record(get().size()));
+    }
+
+    /**
+     * Opens the catalog file named by the {@code bookstore.catalog} system property and watches it
+     * for replacements, or serves the {@link BookCatalog#sample()} books when it is not set.
+     */
+    static LiveBookCatalog openConfigured(OpenTelemetry openTelemetry) {
+        String name = System.getProperty("bookstore.catalog");
+        if (name == null) {
+            return new LiveBookCatalog(null, BookIndex.of(BookCatalog.sample()), openTelemetry);
+        }
+        Path file = Path.of(name).toAbsolutePath();
+        try {
+            BookIndex index = BookIndex.open(file);
+            logger.info("Mapped " + index.size() + " books from " + file);
+            LiveBookCatalog catalog = new LiveBookCatalog(file, index, openTelemetry);
+            catalog.watch();
+            return catalog;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open book catalog " + file, e);
+        }
+    }
+
+    /** The catalog snapshot to use for one call. */
+    @Override
+    public BookIndex get() {
+        return current.get();
+    }
+
+    /** Publishes {@code index} as the current version. */
+    void publish(BookIndex index) {
+        current.set(index);
+    }
+
+    /** Opens the catalog file again and publishes it, keeping the current version on failure. */
+    boolean reload() {
+        long startNanos = System.nanoTime();
+        try {
+            BookIndex index = BookIndex.open(file);
+            if (get().hasFuzzy()) {
+                // Fuzzy search is in use, so build its index before the swap rather than on the next call
+                index.fuzzy();
+            }
+            publish(index);
+            double elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000d;
+            reloadDuration.record(elapsedMillis);
+            logger.info("Reloaded " + index.size() + " books from " + file + " in " + elapsedMillis + " ms");
+            return true;
+        } catch (IOException | RuntimeException e) {
+            reloadFailures.add(1);
+            logger.log(Level.WARNING, "Keeping the previous catalog, cannot reload " + file, e);
+            return false;
+        }
+    }
+
+    private void watch() throws IOException {
+        WatchService watcher = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watcher.take();
+                    boolean changed = false;
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        changed |= file.getFileName().equals(event.context());
+                    }
+                    key.reset();
+                    if (changed) {
+                        reload();
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Shutting down
+            }
+        }, "catalog-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,101 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.common.RpcMetrics;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.opentelemetry.api.OpenTelemetry;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records the server-side {@link RpcMetrics} of every call, whether or not tracing is enabled.
+ *
+ * A call is recorded once, when it is closed, cancelled or fails in its handler. Install it
+ * outside the limiter and the deadline checks, so the calls they reject are counted too.
+ */
+class RpcMetricsInterceptor implements ServerInterceptor {
+    private final RpcMetrics metrics;
+
+    RpcMetricsInterceptor(RpcMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    static void configure(ServerBuilder<?> builder, OpenTelemetry openTelemetry) {
+        builder.intercept(new RpcMetricsInterceptor(RpcMetrics.forServer(openTelemetry)));
+    }
+
+    @Override
+    public <ReqT, RespT> Listener<ReqT>
+    interceptCall(ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        MeteredServerCall<ReqT, RespT> meteredCall = new MeteredServerCall<>(call);
+        Listener<ReqT> listener;
+        try {
+            listener = next.startCall(meteredCall, headers);
+        } catch (RuntimeException e) {
+            meteredCall.finish(Status.fromThrowable(e));
+            throw e;
+        }
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(listener) {
+            @Override
+            public void onMessage(ReqT message) {
+                try {
+                    super.onMessage(message);
+                } catch (RuntimeException e) {
+                    meteredCall.finish(Status.fromThrowable(e));
+                    throw e;
+                }
+            }
+
+            @Override
+            public void onHalfClose() {
+                try {
+                    super.onHalfClose();
+                } catch (RuntimeException e) {
+                    meteredCall.finish(Status.fromThrowable(e));
+                    throw e;
+                }
+            }
+
+            @Override
+            public void onCancel() {
+                try {
+                    super.onCancel();
+                } finally {
+                    meteredCall.finish(Status.CANCELLED);
+                }
+            }
+        };
+    }
+
+    private final class MeteredServerCall<ReqT, RespT>
+            extends ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT> {
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        MeteredServerCall(ServerCall<ReqT, RespT> delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void close(Status status, Metadata trailers) {
+            try {
+                super.close(status, trailers);
+            } finally {
+                finish(status);
+            }
+        }
+
+        void finish(Status status) {
+            if (finished.compareAndSet(false, true)) {
+                metrics.record(getMethodDescriptor(), status.getCode(), System.nanoTime() - startNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.opentelemetry.grpc;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Metadata;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallExecutorSupplier;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerStreamTracer;
+import io.grpc.Status;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Chooses the executor that runs the server's call handlers, selected with the
+ * {@code grpc.server.executor} system property:
+ *
+ * <ul>
+ *   <li>{@code default}: an unbounded cached thread pool, equivalent to gRPC's own default.
+ *   <li>{@code virtual}: one virtual thread per task. Java 19 needs {@code --enable-preview} for
+ *       this, and without it the server logs a warning and falls back to {@code default}.
+ *   <li>{@code bounded}: a work-stealing pool of {@code grpc.server.executor.threads} workers
+ *       (default: the number of processors). Once {@code grpc.server.executor.queue.size} tasks
+ *       are waiting (default 1024), new calls are closed with {@code RESOURCE_EXHAUSTED} before
+ *       their handler is started. Calls already admitted keep queueing their tasks.
+ *   <li>{@code deadline}: {@code grpc.server.executor.threads} workers that take queued tasks
+ *       earliest deadline first, with the same queue limit as {@code bounded}. A call without a
+ *       deadline is queued as if it had one of {@code grpc.server.executor.default.deadline}
+ *       milliseconds (default 5000).
+ *   <li>{@code direct}: handlers run on the transport threads, see
+ *       {@link ServerBuilder#directExecutor()}. This only suits handlers that never block, such as
+ *       the in-memory BookStore and Greeter.
+ * </ul>
+ *
+ * Every mode but {@code direct} publishes {@code rpc.server.executor.queue.depth} (tasks
+ * submitted but not started), {@code rpc.server.executor.active} (tasks running) and
+ * {@code rpc.server.executor.rejected} (calls closed because the queue was full). With
+ * {@code direct}, {@code rpc.server.executor.active} counts the calls in flight instead, as their
+ * handlers run on the transport threads.
+ *
+ * {@code bounded} and {@code deadline} turn calls away on the transport thread, before any
+ * interceptor. The interceptor returned by {@link #configure} closes them, and the server installs
+ * it outermost, so no other interceptor runs for a call that was never admitted.
+ */
+final class ServerExecutors {
+    private static final Logger logger = Logger.getLogger(ServerExecutors.class.getName());
+    private static final AttributeKey<String> EXECUTOR = AttributeKey.stringKey("executor");
+    // Set by the call executor supplier on calls that found the queue full
+    private static final Metadata.Key<String> REJECTED =
+            Metadata.Key.of("x-executor-rejected", Metadata.ASCII_STRING_MARSHALLER);
+    private static final ServerInterceptor PASS_THROUGH = new ServerInterceptor() {
+        @Override
+        public <ReqT, RespT> Listener<ReqT>
+        interceptCall(ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+            return next.startCall(call, headers);
+        }
+    };
+    private static final ServerInterceptor CLOSE_REJECTED = new ServerInterceptor() {
+        @Override
+        public <ReqT, RespT> Listener<ReqT>
+        interceptCall(ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+            if (!headers.containsKey(REJECTED)) {
+                return next.startCall(call, headers);
+            }
+            call.close(Status.RESOURCE_EXHAUSTED.withDescription("Server executor queue is full"), new Metadata());
+            return new Listener<ReqT>() {
+            };
+        }
+    };
+
+    private ServerExecutors() {
+    }
+
+    /**
+     * Installs the executor chosen by the system properties on {@code builder}.
+     *
+     * @return the interceptor closing the calls the executor turned away, to install outermost. It
+     *     passes every call on in modes without a queue limit.
+     */
+    static ServerInterceptor configure(ServerBuilder<?> builder, OpenTelemetry openTelemetry) {
+        String mode = System.getProperty("grpc.server.executor", "default");
+        int threads = Integer.getInteger("grpc.server.executor.threads",
+                Runtime.getRuntime().availableProcessors());
+        int maxQueued = Integer.getInteger("grpc.server.executor.queue.size", 1024);
+        InstrumentedExecutor executor;
+        ServerCallExecutorSupplier admission = null;
+        switch (mode) {
+            case "direct":
+                logger.info("Running call handlers on the transport threads");
+                builder.directExecutor();
+                countDirectCalls(builder, openTelemetry.getMeter("com.opentelemetry.grpc.server"));
+                return PASS_THROUGH;
+            case "bounded":
+                // asyncMode gives FIFO order for tasks that are never joined
+                executor = new InstrumentedExecutor(
+                        new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true),
+                        maxQueued);
+                admission = executor.admitting(-1);
+                break;
+            case "deadline":
+                // The priority queue orders the executor's tasks by deadline, see InstrumentedExecutor.Task
+                executor = new InstrumentedExecutor(new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                        new PriorityBlockingQueue<>(), threadFactory("grpc-server-deadline-")), maxQueued);
+                admission = executor.admitting(TimeUnit.MILLISECONDS.toNanos(
+                        Integer.getInteger("grpc.server.executor.default.deadline", 5000)));
+                break;
+            case "virtual":
+                ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+                if (virtual == null) {
+                    mode = "default";
+                    executor = new InstrumentedExecutor(newCachedThreadPool(), Integer.MAX_VALUE);
+                } else {
+                    executor = new InstrumentedExecutor(virtual, Integer.MAX_VALUE);
+                }
+                break;
+            case "default":
+                executor = new InstrumentedExecutor(newCachedThreadPool(), Integer.MAX_VALUE);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown grpc.server.executor: " + mode);
+        }
+        executor.registerMetrics(openTelemetry.getMeter("com.opentelemetry.grpc.server"), mode);
+        logger.info("Running call handlers on the " + mode + " executor");
+        if (admission == null) {
+            builder.executor(executor);
+            return PASS_THROUGH;
+        }
+        // Calls are looked up on the transport thread, where admission either moves them to the
+        // bounded executor or leaves them marked to be closed there
+        builder.executor(Runnable::run).callExecutor(admission);
+        return CLOSE_REJECTED;
+    }
+
+    /** Publishes the calls in flight, from the creation of their stream until it is closed. */
+    private static void countDirectCalls(ServerBuilder<?> builder, Meter meter) {
+        AtomicInteger inFlight = new AtomicInteger();
+        builder.addStreamTracerFactory(new ServerStreamTracer.Factory() {
+            @Override
+            public ServerStreamTracer newServerStreamTracer(String fullMethodName, Metadata headers) {
+                inFlight.incrementAndGet();
+                return new ServerStreamTracer() {
+                    @Override
+                    public void streamClosed(Status status) {
+                        inFlight.decrementAndGet();
+                    }
+                };
+            }
+        });
+        Attributes attributes = Attributes.of(EXECUTOR, "direct");
+        meter.gaugeBuilder("rpc.server.executor.active").ofLongs().setUnit("{call}")
+                .setDescription("Calls in flight, their handlers running on the transport threads")
+                .buildWithCallback(measurement -> measurement.record(inFlight.get(), attributes));
+    }
+
+    // Looked up reflectively so the server still starts on JVMs without preview features enabled
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            logger.log(Level.WARNING, "Virtual threads are unavailable (Java 19 needs --enable-preview), "
+                    + "falling back to the default executor", e);
+            return null;
+        }
+    }
+
+    private static ExecutorService newCachedThreadPool() {
+        return Executors.newCachedThreadPool(threadFactory("grpc-server-executor-"));
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /** Counts queued and running tasks, and the calls turned away once too many are queued. */
+    static final class InstrumentedExecutor implements Executor {
+        private final Executor delegate;
+        private final int maxQueued;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final LongAdder rejected = new LongAdder();
+
+        InstrumentedExecutor(Executor delegate, int maxQueued) {
+            this.delegate = delegate;
+            this.maxQueued = maxQueued;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            // Tasks not tied to a known deadline are due now, so they run ahead of every live call
+            execute(task, System.nanoTime());
+        }
+
+        /** Runs {@code task}, ahead of later deadlines when the delegate queues by priority. */
+        void execute(Runnable task, long deadlineNanos) {
+            queued.incrementAndGet();
+            try {
+                delegate.execute(new Task(task, deadlineNanos));
+            } catch (RuntimeException e) {
+                queued.decrementAndGet();
+                throw e;
+            }
+        }
+
+        /**
+         * Admits a call while fewer than {@code maxQueued} tasks are waiting, and marks it rejected
+         * otherwise. An admitted call queues its tasks at its deadline, or
+         * {@code defaultDeadlineNanos} from now when it has none; a negative default queues them in
+         * arrival order.
+         */
+        ServerCallExecutorSupplier admitting(long defaultDeadlineNanos) {
+            return new ServerCallExecutorSupplier() {
+                @Override
+                public <ReqT, RespT> Executor getExecutor(ServerCall<ReqT, RespT> call, Metadata metadata) {
+                    // Only this supplier may mark a call
+                    metadata.discardAll(REJECTED);
+                    if (queued.get() >= maxQueued) {
+                        rejected.increment();
+                        metadata.put(REJECTED, "queue-full");
+                        // Stays on the transport thread, where it is closed
+                        return null;
+                    }
+                    if (defaultDeadlineNanos < 0) {
+                        return InstrumentedExecutor.this;
+                    }
+                    // The supplier runs in the call's context, which carries the client's deadline
+                    Deadline deadline = Context.current().getDeadline();
+                    long deadlineNanos = System.nanoTime()
+                            + (deadline == null ? defaultDeadlineNanos : deadline.timeRemaining(TimeUnit.NANOSECONDS));
+                    return task -> execute(task, deadlineNanos);
+                }
+            };
+        }
+
+        private void run(Runnable task) {
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+
+        int queueDepth() {
+            return queued.get();
+        }
+
+        int activeCount() {
+            return active.get();
+        }
+
+        /** A queued task, ordered by deadline in priority queues and ignored elsewhere. */
+        private final class Task implements Runnable, Comparable<Task> {
+            private final Runnable task;
+            private final long deadlineNanos;
+
+            Task(Runnable task, long deadlineNanos) {
+                this.task = task;
+                this.deadlineNanos = deadlineNanos;
+            }
+
+            @Override
+            public void run() {
+                queued.decrementAndGet();
+                InstrumentedExecutor.this.run(task);
+            }
+
+            @Override
+            public int compareTo(Task other) {
+                // nanoTime values may wrap, so only their difference is meaningful
+                return Long.signum(deadlineNanos - other.deadlineNanos);
+            }
+        }
+
+        void registerMetrics(Meter meter, String mode) {
+            Attributes attributes = Attributes.of(EXECUTOR, mode);
+            meter.gaugeBuilder("rpc.server.executor.queue.depth").ofLongs().setUnit("{task}")
+                    .setDescription("Call handler tasks submitted but not yet started")
+                    .buildWithCallback(measurement -> measurement.record(queueDepth(), attributes));
+            meter.gaugeBuilder("rpc.server.executor.active").ofLongs().setUnit("{thread}")
+                    .setDescription("Threads currently running call handler tasks")
+                    .buildWithCallback(measurement -> measurement.record(activeCount(), attributes));
+            meter.counterBuilder("rpc.server.executor.rejected").setUnit("{call}")
+                    .setDescription("Calls closed with RESOURCE_EXHAUSTED because the queue was full")
+                    .buildWithCallback(measurement -> measurement.record(rejected.sum(), attributes));
+        }
+    }
+}
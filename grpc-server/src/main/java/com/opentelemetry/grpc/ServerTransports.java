@@ -0,0 +1,60 @@
+package com.opentelemetry.grpc;
+
+import io.grpc.ServerBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.netty.shaded.io.netty.buffer.PooledByteBufAllocator;
+import io.grpc.netty.shaded.io.netty.channel.ChannelOption;
+import io.grpc.netty.shaded.io.netty.channel.epoll.Epoll;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.grpc.netty.shaded.io.netty.channel.unix.DomainSocketAddress;
+import io.grpc.netty.shaded.io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Chooses where the servers listen. By default that is TCP on {@code grpc.server.port} (default
+ * 50051). When {@code grpc.server.uds} names a path, the server listens on that Unix domain socket
+ * instead, over Netty's native epoll transport with pooled direct buffers. Co-located clients then
+ * skip the kernel TCP stack.
+ */
+final class ServerTransports {
+    private ServerTransports() {
+    }
+
+    /** A builder listening on the configured address. */
+    static ServerBuilder<?> forConfiguredAddress() {
+        String socket = System.getProperty("grpc.server.uds");
+        if (socket != null) {
+            return forDomainSocket(Path.of(socket));
+        }
+        return ServerBuilder.forPort(Integer.getInteger("grpc.server.port", 50051));
+    }
+
+    /** The configured address, for logging. */
+    static String describe() {
+        String socket = System.getProperty("grpc.server.uds");
+        return socket != null ? "unix:" + socket : "port " + Integer.getInteger("grpc.server.port", 50051);
+    }
+
+    static NettyServerBuilder forDomainSocket(Path socket) {
+        if (!Epoll.isAvailable()) {
+            throw new IllegalStateException("Unix domain sockets need the native epoll transport",
+                    Epoll.unavailabilityCause());
+        }
+        try {
+            // A socket file left behind by a server that did not shut down cleanly blocks the bind
+            Files.deleteIfExists(socket);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return NettyServerBuilder.forAddress(new DomainSocketAddress(socket.toString()))
+                .channelType(EpollServerDomainSocketChannel.class)
+                .bossEventLoopGroup(new EpollEventLoopGroup(1, new DefaultThreadFactory("grpc-uds-boss", true)))
+                .workerEventLoopGroup(new EpollEventLoopGroup(0, new DefaultThreadFactory("grpc-uds-worker", true)))
+                .withChildOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+    }
+}
@@ -0,0 +1,110 @@
+package com.opentelemetry.grpc;
+
+import com.google.protobuf.Int32Value;
+import com.opentelemetry.proto.Book;
+import com.opentelemetry.proto.BookSearch;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BookIndexTest {
+    private final BookIndex index = BookIndex.of(BookCatalog.sample());
+
+    private static BookSearch byName(String name) {
+        return BookSearch.newBuilder().setName(name).build();
+    }
+
+    private static String firstName(BookIndex index, BookSearch search) {
+        Book book = index.first(search);
+        return book == null ? null : book.getName();
+    }
+
+    @Test
+    void emptySearchReturnsFirstTitle() {
+        assertEquals("Go Set a Watchman", firstName(index, BookSearch.getDefaultInstance()));
+    }
+
+    @Test
+    void prefixMatchesInTitleOrder() {
+        assertEquals("Go Set a Watchman", firstName(index, byName("G")));
+        assertEquals("Great Gatsby", firstName(index, byName("Gr")));
+        assertEquals("The Side of Paradise", firstName(index, byName("T")));
+        assertEquals("To Kill MockingBird", firstName(index, byName("To")));
+    }
+
+    @Test
+    void fullTitleMatchesItself() {
+        assertEquals("Passage to India", firstName(index, byName("Passage to India")));
+    }
+
+    @Test
+    void prefixWithoutMatchReturnsNull() {
+        // Before the first title, between two titles, after the last one and longer than a title
+        assertNull(index.first(byName("A")));
+        assertNull(index.first(byName("H")));
+        assertNull(index.first(byName("Z")));
+        assertNull(index.first(byName("Great Gatsby and more")));
+    }
+
+    @Test
+    void prefixIsTrimmedButCaseSensitive() {
+        assertEquals("Great Gatsby", firstName(index, byName("  Great ")));
+        assertNull(index.first(byName("great")));
+    }
+
+    @Test
+    void titlesCompareAsUnsignedBytes() {
+        List<Book> books = new ArrayList<>(BookCatalog.sample());
+        books.add(Book.newBuilder().setName("Émile").setAuthor("Rousseau").setPrice(100).build());
+        BookIndex withAccent = BookIndex.of(books);
+
+        // A negative signed byte would sort the accented title first
+        assertEquals("Go Set a Watchman", firstName(withAccent, BookSearch.getDefaultInstance()));
+        assertEquals("Émile", firstName(withAccent, byName("É")));
+    }
+
+    @Test
+    void authorAndGenreIntersectWithPrefix() {
+        assertEquals("To Kill MockingBird",
+                firstName(index, BookSearch.newBuilder().setName("T").setAuthor("Harper Lee").build()));
+        assertEquals("Go Set a Watchman",
+                firstName(index, BookSearch.newBuilder().setAuthor("Harper Lee").setGenre("Southern Gothic").build()));
+        assertNull(index.first(BookSearch.newBuilder().setAuthor("Harper Lee").setGenre("Tragedy").build()));
+        assertNull(index.first(BookSearch.newBuilder().setAuthor("Nobody").build()));
+    }
+
+    @Test
+    void priceOnlySearchIsInPriceOrder() {
+        assertEquals("Great Gatsby",
+                firstName(index, BookSearch.newBuilder().setMaxPrice(Int32Value.of(350)).build()));
+        assertEquals("The Side of Paradise",
+                firstName(index, BookSearch.newBuilder().setMinPrice(Int32Value.of(550)).build()));
+        // Bounds are inclusive
+        assertEquals("Passage to India", firstName(index, BookSearch.newBuilder()
+                .setMinPrice(Int32Value.of(500)).setMaxPrice(Int32Value.of(500)).build()));
+        assertNull(index.first(BookSearch.newBuilder()
+                .setMinPrice(Int32Value.of(650)).setMaxPrice(Int32Value.of(350)).build()));
+    }
+
+    @Test
+    void priceFiltersPrefixMatches() {
+        assertEquals("Go Set a Watchman",
+                firstName(index, BookSearch.newBuilder().setName("G").setMinPrice(Int32Value.of(400)).build()));
+        assertEquals("Great Gatsby",
+                firstName(index, BookSearch.newBuilder().setName("G").setMaxPrice(Int32Value.of(400)).build()));
+    }
+
+    @Test
+    void emptyCatalogMatchesNothing() {
+        BookIndex empty = BookIndex.of(List.of());
+
+        assertEquals(0, empty.size());
+        assertNull(empty.first(BookSearch.getDefaultInstance()));
+        assertNull(empty.first(BookSearch.newBuilder().setAuthor("Harper Lee").build()));
+        assertNull(empty.first(BookSearch.newBuilder().setMinPrice(Int32Value.of(0)).build()));
+    }
+}
@@ -0,0 +1,131 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.proto.BookSearch;
+import com.opentelemetry.proto.BookStoreGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BookResponseCacheTest {
+    private static final byte[] PAYLOAD = {1, 2, 3};
+
+    private final BookIndex index = BookIndex.of(BookCatalog.sample());
+    // One shard of ten entries: eight protected, two on probation
+    private final BookResponseCache cache = new BookResponseCache(10, 1);
+
+    private static BookSearch key(String name) {
+        return BookSearch.newBuilder().setName(name).build();
+    }
+
+    private void put(String... names) {
+        for (String name : names) {
+            cache.put(index, key(name), PAYLOAD);
+        }
+    }
+
+    private byte[] get(String name) {
+        return cache.get(index, key(name));
+    }
+
+    @Test
+    void probationEvictsTheLeastRecentlyUsedEntry() {
+        put("a", "b", "c");
+
+        assertNull(get("a"));
+        assertArrayEquals(PAYLOAD, get("b"));
+        assertArrayEquals(PAYLOAD, get("c"));
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    void secondHitProtectsAnEntryFromOneOffQueries() {
+        put("hot");
+        assertArrayEquals(PAYLOAD, get("hot"));
+
+        put("1", "2", "3", "4", "5", "6");
+
+        assertArrayEquals(PAYLOAD, get("hot"));
+        assertNull(get("1"));
+        assertEquals(4, cache.evictionCount());
+    }
+
+    @Test
+    void protectedOverflowFallsBackToProbation() {
+        for (int i = 0; i < 9; i++) {
+            put("p" + i);
+            assertArrayEquals(PAYLOAD, get("p" + i));
+        }
+        // p0 was demoted to probation, where a hit promotes it again and demotes p1
+        assertArrayEquals(PAYLOAD, get("p0"));
+
+        put("x", "y");
+
+        assertNull(get("p1"));
+        assertArrayEquals(PAYLOAD, get("p0"));
+        assertArrayEquals(PAYLOAD, get("p2"));
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    void newerGenerationInvalidatesEntries() {
+        BookIndex reloaded = BookIndex.of(BookCatalog.sample());
+        put("a");
+
+        assertNull(cache.get(reloaded, key("a")));
+        cache.put(reloaded, key("b"), PAYLOAD);
+
+        // Calls still holding the old catalog neither read nor store entries
+        assertNull(get("b"));
+        put("c");
+        assertNull(cache.get(reloaded, key("c")));
+        assertArrayEquals(PAYLOAD, cache.get(reloaded, key("b")));
+    }
+
+    @Test
+    void storeFromNewerGenerationAdvancesTheCache() {
+        BookIndex reloaded = BookIndex.of(BookCatalog.sample());
+        put("a");
+
+        cache.put(reloaded, key("b"), PAYLOAD);
+
+        assertArrayEquals(PAYLOAD, cache.get(reloaded, key("b")));
+        assertNull(cache.get(reloaded, key("a")));
+        assertNull(get("a"));
+        assertNull(get("b"));
+    }
+
+    @Test
+    void unmatchedSearchFailsWithNotFound() throws Exception {
+        String name = InProcessServerBuilder.generateName();
+        Server server = InProcessServerBuilder.forName(name).directExecutor()
+                .addService(CachedBookStoreService.bind(new BookStoreImpl(() -> index), () -> index, OpenTelemetry.noop()))
+                .build().start();
+        ManagedChannel channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        try {
+            BookStoreGrpc.BookStoreBlockingStub stub = BookStoreGrpc.newBlockingStub(channel);
+
+            // A hit answers with the same book as the miss that cached it
+            assertEquals("Great Gatsby", stub.first(key("Great")).getName());
+            assertEquals("Great Gatsby", stub.first(key(" Great ")).getName());
+            for (int i = 0; i < 2; i++) {
+                StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () -> stub.first(key("Zebra")));
+                assertEquals(Status.Code.NOT_FOUND, e.getStatus().getCode());
+            }
+        } finally {
+            channel.shutdownNow();
+            server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+}
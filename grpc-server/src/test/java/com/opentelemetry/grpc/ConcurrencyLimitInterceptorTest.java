@@ -0,0 +1,132 @@
+package com.opentelemetry.grpc;
+
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.Status;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitInterceptorTest {
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final List<ServerCall<String, String>> started = new ArrayList<>();
+    // Calls that reach the handler stay open until the test closes them
+    private final ServerCallHandler<String, String> handler = (call, headers) -> {
+        started.add(call);
+        return new ServerCall.Listener<String>() {
+        };
+    };
+
+    // Past the end of the first window of any limiter the test creates
+    private long now = System.nanoTime() + WINDOW_NANOS;
+
+    /** Closes {@code count} windows of one fully loaded sample each, taking {@code rttNanos}. */
+    private void windows(ConcurrencyLimitInterceptor limiter, int count, long rttNanos) {
+        for (int i = 0; i < count; i++) {
+            now += WINDOW_NANOS;
+            limiter.onSample(rttNanos, limiter.limit(), now);
+        }
+    }
+
+    private FakeServerCall call(ConcurrencyLimitInterceptor limiter, String fullMethodName) {
+        FakeServerCall call = new FakeServerCall(fullMethodName);
+        limiter.interceptCall(call, new Metadata(), handler);
+        return call;
+    }
+
+    @Test
+    void limitShrinksWhenLatencyRisesAndRecovers() {
+        ConcurrencyLimitInterceptor limiter = new ConcurrencyLimitInterceptor(20, 4, 1000, Set.of(), 0.5);
+
+        windows(limiter, 20, FAST_NANOS);
+        int steady = limiter.limit();
+        assertTrue(steady > 20, "limit grows while latency holds: " + steady);
+
+        windows(limiter, 30, SLOW_NANOS);
+        int slow = limiter.limit();
+        assertTrue(slow < steady / 2, "limit shrinks when latency rises: " + slow);
+        assertTrue(slow >= 4);
+
+        windows(limiter, 30, FAST_NANOS);
+        assertTrue(limiter.limit() > slow, "limit recovers with latency: " + limiter.limit());
+    }
+
+    @Test
+    void limitHoldsWhileMostlyIdle() {
+        ConcurrencyLimitInterceptor limiter = new ConcurrencyLimitInterceptor(20, 4, 1000, Set.of(), 0.5);
+
+        for (int i = 0; i < 20; i++) {
+            now += WINDOW_NANOS;
+            limiter.onSample(FAST_NANOS, 1, now);
+        }
+
+        assertEquals(20, limiter.limit());
+    }
+
+    @Test
+    void samplesWithinOneWindowAreAveraged() {
+        ConcurrencyLimitInterceptor limiter = new ConcurrencyLimitInterceptor(20, 4, 1000, Set.of(), 0.5);
+        windows(limiter, 20, FAST_NANOS);
+        int steady = limiter.limit();
+
+        // Many slow samples before the window ends move the limit once, not once per sample
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(SLOW_NANOS, steady, now + 1);
+        }
+        windows(limiter, 1, SLOW_NANOS);
+
+        assertTrue(limiter.limit() > steady / 2, "one window moved the limit to " + limiter.limit());
+    }
+
+    @Test
+    void callsOverTheLimitAreRejected() {
+        ConcurrencyLimitInterceptor limiter = new ConcurrencyLimitInterceptor(4, 4, 1000, Set.of(), 0.5);
+        List<FakeServerCall> admitted = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            admitted.add(call(limiter, "test/unary"));
+        }
+
+        FakeServerCall rejected = call(limiter, "test/unary");
+
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, rejected.status.getCode());
+        assertEquals(4, started.size(), "a rejected call never reaches its handler");
+        assertEquals(4, limiter.inFlight());
+        assertEquals(1, limiter.rejectedCount());
+        admitted.forEach(call -> assertNull(call.status));
+
+        // Closing an admitted call frees its permit
+        started.get(0).close(Status.OK, new Metadata());
+        assertEquals(3, limiter.inFlight());
+        assertNull(call(limiter, "test/unary").status);
+        assertEquals(4, limiter.inFlight());
+    }
+
+    @Test
+    void lowPriorityCallsAreCappedAtTheirShare() {
+        ConcurrencyLimitInterceptor limiter =
+                new ConcurrencyLimitInterceptor(8, 4, 1000, Set.of("test/low"), 0.5);
+
+        for (int i = 0; i < 4; i++) {
+            assertNull(call(limiter, "test/low").status);
+        }
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, call(limiter, "test/low").status.getCode());
+
+        // Other methods may still use the rest of the limit
+        for (int i = 0; i < 4; i++) {
+            assertNull(call(limiter, "test/high").status);
+        }
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, call(limiter, "test/high").status.getCode());
+        assertEquals(2, limiter.rejectedCount());
+    }
+}
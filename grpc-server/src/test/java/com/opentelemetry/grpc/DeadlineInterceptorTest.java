@@ -0,0 +1,251 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.grpc.DeadlineInterceptor.Stage;
+import com.opentelemetry.proto.BookBatch;
+import com.opentelemetry.proto.BookMatch;
+import com.opentelemetry.proto.BookSearch;
+import com.opentelemetry.proto.BookSearchAll;
+import com.opentelemetry.proto.BookSearchBatch;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DeadlineInterceptorTest {
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final DeadlineInterceptor interceptor = new DeadlineInterceptor();
+    private final BookStoreImpl store = new BookStoreImpl(() -> BookIndex.of(BookCatalog.sample()));
+    private final List<String> handled = new ArrayList<>();
+    private final ServerCallHandler<String, String> handler = (call, headers) -> {
+        handled.add("start");
+        return new ServerCall.Listener<String>() {
+            @Override
+            public void onMessage(String message) {
+                handled.add(message);
+            }
+
+            @Override
+            public void onHalfClose() {
+                handled.add("halfClose");
+            }
+        };
+    };
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private Context.CancellableContext expired() {
+        return Context.current().withDeadline(Deadline.after(-1, TimeUnit.SECONDS), scheduler);
+    }
+
+    private ServerCall.Listener<String> intercept(Context context, FakeServerCall call) {
+        Context previous = context.attach();
+        try {
+            return interceptor.interceptCall(call, new Metadata(), handler);
+        } finally {
+            context.detach(previous);
+        }
+    }
+
+    @Test
+    void expiredCallIsClosedBeforeItsHandler() {
+        long before = DeadlineInterceptor.avoidedCount(Stage.QUEUED);
+        FakeServerCall call = new FakeServerCall("test/unary");
+
+        intercept(expired(), call);
+
+        assertEquals(Status.Code.DEADLINE_EXCEEDED, call.status.getCode());
+        assertEquals(List.of(), handled);
+        assertEquals(before + 1, DeadlineInterceptor.avoidedCount(Stage.QUEUED));
+    }
+
+    @Test
+    void cancelledCallIsClosedBeforeItsHandler() {
+        long before = DeadlineInterceptor.avoidedCount(Stage.QUEUED);
+        FakeServerCall call = new FakeServerCall("test/unary");
+        Context.CancellableContext context = Context.current().withCancellation();
+        context.cancel(Status.CANCELLED.withDescription("RPC cancelled").asRuntimeException());
+
+        intercept(context, call);
+
+        assertEquals(Status.Code.CANCELLED, call.status.getCode());
+        assertEquals(List.of(), handled);
+        assertEquals(before + 1, DeadlineInterceptor.avoidedCount(Stage.QUEUED));
+    }
+
+    @Test
+    void unaryHandlerIsSkippedWhenTheDeadlinePassesBeforeHalfClose() {
+        long before = DeadlineInterceptor.avoidedCount(Stage.QUEUED);
+        FakeServerCall call = new FakeServerCall("test/unary");
+        Context.CancellableContext context = Context.current().withCancellation();
+        ServerCall.Listener<String> listener = intercept(context, call);
+
+        listener.onMessage("request");
+        // What the server does once the deadline timer fires
+        context.cancel(new TimeoutException("context timed out"));
+        listener.onHalfClose();
+
+        assertEquals(List.of("start", "request"), handled);
+        assertEquals(before + 1, DeadlineInterceptor.avoidedCount(Stage.QUEUED));
+    }
+
+    @Test
+    void liveCallReachesItsHandler() {
+        long before = DeadlineInterceptor.avoidedCount(Stage.QUEUED);
+        FakeServerCall call = new FakeServerCall("test/unary");
+        Context.CancellableContext context = Context.current().withDeadline(Deadline.after(1, TimeUnit.MINUTES), scheduler);
+        ServerCall.Listener<String> listener = intercept(context, call);
+
+        listener.onMessage("request");
+        listener.onHalfClose();
+        context.cancel(null);
+
+        assertNull(call.status);
+        assertEquals(List.of("start", "request", "halfClose"), handled);
+        assertEquals(before, DeadlineInterceptor.avoidedCount(Stage.QUEUED));
+    }
+
+    @Test
+    void batchStopsOnceTheDeadlineHasPassed() {
+        BookSearchBatch.Builder request = BookSearchBatch.newBuilder();
+        for (int i = 0; i < 100; i++) {
+            request.addSearches(BookSearch.newBuilder().setName("Great"));
+        }
+        long before = DeadlineInterceptor.avoidedCount(Stage.BATCH);
+        Recorder<BookBatch> live = new Recorder<>();
+        Recorder<BookBatch> late = new Recorder<>();
+
+        store.firstBatch(request.build(), live);
+        expired().run(() -> store.firstBatch(request.build(), late));
+
+        assertEquals(100, live.values.get(0).getBooksCount());
+        assertEquals(List.of(), late.values);
+        assertEquals(Status.Code.DEADLINE_EXCEEDED, Status.fromThrowable(late.error).getCode());
+        assertEquals(before + 1, DeadlineInterceptor.avoidedCount(Stage.BATCH));
+    }
+
+    @Test
+    void streamStopsOnceTheDeadlineHasPassed() {
+        long before = DeadlineInterceptor.avoidedCount(Stage.STREAM);
+        Context.CancellableContext context = Context.current().withCancellation();
+        StreamRecorder observer = new StreamRecorder(context, 2);
+
+        context.run(() -> {
+            store.searchAll(BookSearchAll.getDefaultInstance(), observer);
+            observer.onReadyHandler.run();
+        });
+
+        assertEquals(2, observer.values.size());
+        assertEquals(Status.Code.DEADLINE_EXCEEDED, Status.fromThrowable(observer.error).getCode());
+        assertFalse(observer.completed);
+        assertEquals(before + 1, DeadlineInterceptor.avoidedCount(Stage.STREAM));
+    }
+
+    private static final class Recorder<T> implements StreamObserver<T> {
+        final List<T> values = new ArrayList<>();
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onNext(T value) {
+            values.add(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+        }
+
+        @Override
+        public void onCompleted() {
+            completed = true;
+        }
+    }
+
+    /** Always ready; the deadline of {@code context} passes once {@code sentBeforeDeadline} matches are sent. */
+    private static final class StreamRecorder extends ServerCallStreamObserver<BookMatch> {
+        final List<BookMatch> values = new ArrayList<>();
+        private final Context.CancellableContext context;
+        private final int sentBeforeDeadline;
+        Runnable onReadyHandler;
+        Throwable error;
+        boolean completed;
+
+        StreamRecorder(Context.CancellableContext context, int sentBeforeDeadline) {
+            this.context = context;
+            this.sentBeforeDeadline = sentBeforeDeadline;
+        }
+
+        @Override
+        public void onNext(BookMatch value) {
+            values.add(value);
+            if (values.size() == sentBeforeDeadline) {
+                context.cancel(new TimeoutException("context timed out"));
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+        }
+
+        @Override
+        public void onCompleted() {
+            completed = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return context.isCancelled();
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setOnReadyHandler(Runnable onReadyHandler) {
+            this.onReadyHandler = onReadyHandler;
+        }
+
+        @Override
+        public void setOnCancelHandler(Runnable onCancelHandler) {
+        }
+
+        @Override
+        public void setCompression(String compression) {
+        }
+
+        @Override
+        public void disableAutoInboundFlowControl() {
+        }
+
+        @Override
+        public void request(int count) {
+        }
+
+        @Override
+        public void setMessageCompression(boolean enable) {
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.opentelemetry.grpc;
+
+import io.grpc.Attributes;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.Status;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/** A unary server call that records how it was closed; a call still open has no status. */
+final class FakeServerCall extends ServerCall<String, String> {
+    private static final MethodDescriptor.Marshaller<String> MARSHALLER = new MethodDescriptor.Marshaller<String>() {
+        @Override
+        public InputStream stream(String value) {
+            return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String parse(InputStream stream) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    private final MethodDescriptor<String, String> method;
+    Status status;
+
+    FakeServerCall(String fullMethodName) {
+        this.method = MethodDescriptor.newBuilder(MARSHALLER, MARSHALLER)
+                .setType(MethodDescriptor.MethodType.UNARY)
+                .setFullMethodName(fullMethodName)
+                .build();
+    }
+
+    @Override
+    public void request(int numMessages) {
+    }
+
+    @Override
+    public void sendHeaders(Metadata headers) {
+    }
+
+    @Override
+    public void sendMessage(String message) {
+    }
+
+    @Override
+    public void close(Status status, Metadata trailers) {
+        this.status = status;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public Attributes getAttributes() {
+        return Attributes.EMPTY;
+    }
+
+    @Override
+    public MethodDescriptor<String, String> getMethodDescriptor() {
+        return method;
+    }
+}
@@ -0,0 +1,160 @@
+package com.opentelemetry.grpc;
+
+import com.google.protobuf.Int32Value;
+import com.opentelemetry.proto.Book;
+import com.opentelemetry.proto.FuzzySearch;
+import com.opentelemetry.proto.ScoredBook;
+import com.opentelemetry.proto.ScoredBooks;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FuzzyIndexTest {
+    private final BookIndex sample = BookIndex.of(BookCatalog.sample());
+
+    private static Book book(String name, String author) {
+        return Book.newBuilder().setName(name).setAuthor(author).setPrice(100).build();
+    }
+
+    private static List<String> names(ScoredBooks result) {
+        return result.getMatchesList().stream().map(match -> match.getBook().getName()).collect(Collectors.toList());
+    }
+
+    /** Edits needed for {@code query} in "Great Gatsby", or -1 when it takes more than two. */
+    private int edits(String query) {
+        ScoredBooks result = sample.fuzzy().search(query, 2, 10);
+        for (ScoredBook match : result.getMatchesList()) {
+            if (match.getBook().getName().equals("Great Gatsby")) {
+                return match.getEdits();
+            }
+        }
+        return -1;
+    }
+
+    private static Recorder answer(BookIndex index, FuzzySearch request) {
+        Recorder recorder = new Recorder();
+        FuzzyIndex.answer(index, request, recorder);
+        return recorder;
+    }
+
+    @Test
+    void countsEachKindOfEditOnce() {
+        assertEquals(0, edits("gatsby"));
+        assertEquals(1, edits("gatsbx"), "substitution");
+        assertEquals(1, edits("gatssby"), "insertion");
+        assertEquals(1, edits("gatsy"), "deletion");
+        assertEquals(1, edits("gatbsy"), "adjacent transposition");
+        assertEquals(2, edits("gatbys"));
+    }
+
+    @Test
+    void matchesOutsideTheEditBoundAreDropped() {
+        assertEquals(List.of(), names(sample.fuzzy().search("gatbys", 1, 10)));
+        assertEquals(List.of(), names(sample.fuzzy().search("gatsbx", 0, 10)));
+    }
+
+    @Test
+    void typoAndCaseFindTheTitle() {
+        Recorder recorder = answer(sample, FuzzySearch.newBuilder().setQuery("  Great   GATBSY ").build());
+
+        assertNull(recorder.error);
+        ScoredBook best = recorder.result.getMatches(0);
+        assertEquals("Great Gatsby", best.getBook().getName());
+        assertEquals(ScoredBook.Field.NAME, best.getField());
+        assertEquals(1, best.getEdits());
+        assertEquals(11 / 12d, best.getScore(), 1e-9);
+    }
+
+    @Test
+    void authorMatchStandsForTheirBooksInTitleOrder() {
+        ScoredBooks result = sample.fuzzy().search(FuzzyIndex.normalize("Fitzgerlad"), 2, 10);
+
+        assertEquals(List.of("Great Gatsby", "The Side of Paradise"), names(result));
+        for (ScoredBook match : result.getMatchesList()) {
+            assertEquals(ScoredBook.Field.AUTHOR, match.getField());
+            assertEquals(1, match.getEdits());
+        }
+    }
+
+    @Test
+    void ranksByEditsThenSharedTrigramsThenLengthThenTitle() {
+        BookIndex index = BookIndex.of(List.of(book("Red Apple", "Ann"), book("Big Apple", "Bob"),
+                book("Red Apples", "Cy"), book("Green Apple", "Di"), book("Pear", "Ed")));
+
+        // Equal lengths tie on the title order
+        assertEquals(List.of("Big Apple", "Red Apple", "Red Apples", "Green Apple"),
+                names(index.fuzzy().search("apple", 1, 10)));
+        assertEquals(List.of("Big Apple", "Red Apple"), names(index.fuzzy().search("apple", 1, 2)));
+        // The exact match outranks shorter titles that need an edit
+        assertEquals(List.of("Red Apples", "Big Apple", "Red Apple"), names(index.fuzzy().search("apples", 1, 3)));
+    }
+
+    @Test
+    void limitDefaultsAndIsBounded() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            books.add(book(String.format("Apple %02d", i), "Ann"));
+        }
+        BookIndex index = BookIndex.of(books);
+
+        assertEquals(FuzzyIndex.DEFAULT_LIMIT,
+                answer(index, FuzzySearch.newBuilder().setQuery("apple").build()).result.getMatchesCount());
+        assertEquals(25, answer(index, FuzzySearch.newBuilder().setQuery("apple").setLimit(25).build())
+                .result.getMatchesCount());
+        assertEquals(Status.Code.INVALID_ARGUMENT, answer(index, FuzzySearch.newBuilder().setQuery("apple")
+                .setLimit(FuzzyIndex.MAX_LIMIT + 1).build()).code());
+        assertEquals(Status.Code.INVALID_ARGUMENT, answer(index, FuzzySearch.newBuilder().setQuery("apple")
+                .setMaxEdits(Int32Value.of(FuzzyIndex.MAX_EDITS + 1)).build()).code());
+    }
+
+    @Test
+    void queryLengthIsBounded() {
+        assertEquals(Status.Code.INVALID_ARGUMENT, answer(sample, FuzzySearch.newBuilder().setQuery(" Go ").build()).code());
+        String longest = "gatsby".repeat(11).substring(0, FuzzyIndex.MAX_QUERY_LENGTH);
+        assertNull(answer(sample, FuzzySearch.newBuilder().setQuery(longest).build()).error);
+        assertEquals(Status.Code.INVALID_ARGUMENT,
+                answer(sample, FuzzySearch.newBuilder().setQuery(longest + "g").build()).code());
+    }
+
+    @Test
+    void emptyCatalogMatchesNothing() {
+        Recorder recorder = answer(BookIndex.of(List.of()), FuzzySearch.newBuilder().setQuery("gatsby").build());
+
+        assertNull(recorder.error);
+        assertTrue(recorder.completed);
+        assertEquals(0, recorder.result.getMatchesCount());
+    }
+
+    private static final class Recorder implements StreamObserver<ScoredBooks> {
+        ScoredBooks result;
+        Throwable error;
+        boolean completed;
+
+        Status.Code code() {
+            return error == null ? Status.Code.OK : Status.fromThrowable(error).getCode();
+        }
+
+        @Override
+        public void onNext(ScoredBooks value) {
+            result = value;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+        }
+
+        @Override
+        public void onCompleted() {
+            completed = true;
+        }
+    }
+}
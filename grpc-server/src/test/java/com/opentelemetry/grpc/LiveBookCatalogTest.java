@@ -0,0 +1,115 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.proto.Book;
+import com.opentelemetry.proto.BookSearch;
+import io.opentelemetry.api.OpenTelemetry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LiveBookCatalogTest {
+    private static final int BOOKS = 200;
+
+    @TempDir
+    Path dir;
+
+    /** Every book of version {@code version} has that version as its price. */
+    private static List<Book> version(int version) {
+        List<Book> books = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(Book.newBuilder().setName(String.format("Title %03d", i))
+                    .setAuthor("Author " + i % 7).setPrice(version).build());
+        }
+        return books;
+    }
+
+    private LiveBookCatalog open(Path file) throws IOException {
+        return new LiveBookCatalog(file, BookIndex.open(file), OpenTelemetry.noop());
+    }
+
+    @Test
+    void snapshotKeepsItsVersionAcrossReload() throws IOException {
+        Path file = dir.resolve("catalog.bin");
+        BookCatalogBuilder.write(version(1), file);
+        LiveBookCatalog catalog = open(file);
+        BookIndex snapshot = catalog.get();
+
+        BookCatalogBuilder.write(version(2), file);
+        assertTrue(catalog.reload());
+
+        BookSearch search = BookSearch.newBuilder().setName("Title 1").build();
+        assertEquals(1, snapshot.first(search).getPrice());
+        assertEquals(2, catalog.get().first(search).getPrice());
+        assertTrue(catalog.get().generation() > snapshot.generation());
+    }
+
+    @Test
+    void failedReloadKeepsPreviousVersion() throws IOException {
+        Path file = dir.resolve("catalog.bin");
+        BookCatalogBuilder.write(version(1), file);
+        LiveBookCatalog catalog = open(file);
+        BookIndex before = catalog.get();
+
+        Files.write(file, new byte[] {1, 2, 3});
+
+        assertFalse(catalog.reload());
+        assertSame(before, catalog.get());
+    }
+
+    @Test
+    void concurrentReadersNeverSeeMixedVersions() throws Exception {
+        Path file = dir.resolve("catalog.bin");
+        BookCatalogBuilder.write(version(0), file);
+        LiveBookCatalog catalog = open(file);
+        AtomicBoolean reloading = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int r = 0; r < 4; r++) {
+                results.add(readers.submit(() -> {
+                    int snapshots = 0;
+                    long lastGeneration = 0;
+                    while (reloading.get() || snapshots == 0) {
+                        BookIndex snapshot = catalog.get();
+                        assertTrue(snapshot.generation() >= lastGeneration, "generation went backwards");
+                        lastGeneration = snapshot.generation();
+                        int version = snapshot.first(BookSearch.getDefaultInstance()).getPrice();
+                        for (int i = 0; i < BOOKS; i += 7) {
+                            Book book = snapshot.first(BookSearch.newBuilder()
+                                    .setName(String.format("Title %03d", i)).setAuthor("Author " + i % 7).build());
+                            assertEquals(version, book.getPrice(), "snapshot mixed two versions");
+                        }
+                        snapshots++;
+                    }
+                    return snapshots;
+                }));
+            }
+            for (int version = 1; version <= 50; version++) {
+                BookCatalogBuilder.write(version(version), file);
+                assertTrue(catalog.reload());
+            }
+            reloading.set(false);
+            for (Future<Integer> result : results) {
+                assertTrue(result.get(30, TimeUnit.SECONDS) > 0);
+            }
+            assertEquals(50, catalog.get().first(BookSearch.getDefaultInstance()).getPrice());
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.opentelemetry.grpc;
+
+import com.opentelemetry.grpc.ServerExecutors.InstrumentedExecutor;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Metadata;
+import io.grpc.ServerCallExecutorSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServerExecutorsTest {
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    // One worker, so every task submitted while it is busy waits in the priority queue
+    private final ThreadPoolExecutor pool =
+            new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+    private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    /** The executor {@code admission} picks for a call with {@code deadline}, or none when null. */
+    private Executor admit(ServerCallExecutorSupplier admission, Deadline deadline) {
+        Context context = deadline == null ? Context.current() : Context.current().withDeadline(deadline, scheduler);
+        Context previous = context.attach();
+        try {
+            return admission.getExecutor(new FakeServerCall("test/unary"), new Metadata());
+        } finally {
+            context.detach(previous);
+        }
+    }
+
+    private Runnable record(String name) {
+        return () -> order.add(name);
+    }
+
+    /** Occupies the only worker until the returned latch is released. */
+    private CountDownLatch block(Executor executor) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    @Test
+    void queuedTasksRunEarliestDeadlineFirst() throws InterruptedException {
+        InstrumentedExecutor executor = new InstrumentedExecutor(pool, 100);
+        ServerCallExecutorSupplier admission = executor.admitting(TimeUnit.HOURS.toNanos(1));
+        CountDownLatch release = block(executor);
+
+        admit(admission, null).execute(record("no deadline"));
+        admit(admission, Deadline.after(3, TimeUnit.SECONDS)).execute(record("3s"));
+        admit(admission, Deadline.after(1, TimeUnit.SECONDS)).execute(record("1s"));
+        // Work not tied to a call is due now
+        executor.execute(record("now"));
+        admit(admission, Deadline.after(2, TimeUnit.SECONDS)).execute(record("2s"));
+        assertEquals(5, executor.queueDepth());
+
+        release.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of("now", "1s", "2s", "3s", "no deadline"), order);
+        assertEquals(0, executor.queueDepth());
+        assertEquals(0, executor.activeCount());
+    }
+
+    @Test
+    void fullQueueTurnsCallsAway() throws InterruptedException {
+        InstrumentedExecutor executor = new InstrumentedExecutor(pool, 1);
+        ServerCallExecutorSupplier admission = executor.admitting(-1);
+        CountDownLatch release = block(executor);
+        admit(admission, null).execute(record("queued"));
+
+        // No executor leaves the call on the transport thread, to be closed there
+        assertNull(admit(admission, null));
+
+        release.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(List.of("queued"), order);
+    }
+
+    @Test
+    void negativeDefaultDeadlineQueuesInArrivalOrder() {
+        InstrumentedExecutor executor = new InstrumentedExecutor(pool, 100);
+
+        assertSame(executor, admit(executor.admitting(-1), Deadline.after(1, TimeUnit.SECONDS)));
+    }
+}